@@ -1,164 +1,182 @@
 package JSON;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 
 public class ArrayBasedJsonCompare {
 
     private static final Logger logger = LoggerFactory.getLogger(JSONCompareDynamic.class);
 
+    // Key field per array, e.g. -Darray.keys=claimInfoCodes=claimNumber; arrays without a key pair by position
+    private static final WildcardComparator arrayComparator =
+            new WildcardComparator(WildcardComparator.parseKeyFields(System.getProperty("array.keys", "")));
+
+    // Phase timings of this run, written to target/metrics when it ends
+    private static final RunMetrics metrics = new RunMetrics("ArrayBasedJsonCompare");
+
+    // Arrays compared element by element in streaming mode
+    private static final String OLD_ARRAY_POINTER = "/searchResult/searchOutput/claims";
+    private static final String NEW_ARRAY_POINTER = "/data";
+
     public static void main(String[] args) {
         String mappingFilePath = "C:\\Users\\nezam\\eclipse-workspace\\Canocial\\src\\main\\java\\Data\\mapping.xlsx";
         String oldFilePath = "C:\\Users\\nezam\\eclipse-workspace\\Canocial\\src\\main\\java\\Data\\response1.json";
         String newFilePath = "C:\\Users\\nezam\\eclipse-workspace\\Canocial\\src\\main\\java\\Data\\response2.json";
         String outputExcelPath = "Data/output.xlsx";
         String outputJsonPath = "Data/output_matched.json";
+        // --stream: pairs the claims of both files by position only, whatever array.keys says for
+        // the top-level arrays; arrays inside each claim are still aligned by their keys
+        boolean streaming = args.length > 0 && "--stream".equals(args[0]);
 
-        try (Workbook workbook = new XSSFWorkbook()) {
-            Sheet sheet = workbook.createSheet("Comparison Results");
-
-            // Create the header row for the Excel file
-            Row headerRow = sheet.createRow(0);
-            headerRow.createCell(0).setCellValue("Old Path");
-            headerRow.createCell(1).setCellValue("New Path");
-            headerRow.createCell(2).setCellValue("Old Value");
-            headerRow.createCell(3).setCellValue("New Value");
-            headerRow.createCell(4).setCellValue("Matched/Not Matched");
+        // Result rows are held off-heap until the compare pass is done, then rendered to each format
+        try (ComparisonResultStore results = new ComparisonResultStore()) {
 
             // Load the mapping file
-            Map<String, String> mapping = readMapping(mappingFilePath);
+            CompiledMapping mapping;
+            try (RunMetrics.Phase phase = metrics.start("readMapping")) {
+                mapping = readMapping(mappingFilePath);
+                phase.records(mapping.size()).bytes(new File(mappingFilePath).length());
+            }
 
-            // Load the JSON files
             ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode oldJson = objectMapper.readTree(new File(oldFilePath));
-            JsonNode newJson = objectMapper.readTree(new File(newFilePath));
 
-            // Initialize the result JSON node
-            ObjectNode resultJson = objectMapper.createObjectNode();
+            // Compare and store the results; includes the pathLookup and storeRows phases
+            if (streaming) {
+                // Parsing is interleaved with comparing here, so both are timed as one phase
+                try (RunMetrics.Phase phase = metrics.start("compareStreaming")) {
+                    long pairs = compareStreaming(objectMapper, new File(oldFilePath), new File(newFilePath), mapping, results);
+                    phase.records(pairs).bytes(new File(oldFilePath).length() + new File(newFilePath).length());
+                }
+            } else {
+                // Load the JSON files
+                JsonNode oldJson;
+                JsonNode newJson;
+                try (RunMetrics.Phase phase = metrics.start("readTree")) {
+                    oldJson = objectMapper.readTree(new File(oldFilePath));
+                    newJson = objectMapper.readTree(new File(newFilePath));
+                    phase.records(2).bytes(new File(oldFilePath).length() + new File(newFilePath).length());
+                }
 
-            // Compare and generate results
-            int rowIndex = 1; // Start writing data rows after the header
+                try (RunMetrics.Phase phase = metrics.start("compare")) {
+                    for (CompiledMapping.Entry entry : mapping) {
+                        // Process paths for both Excel and JSON creation
+                        processPaths(oldJson, newJson, entry, results);
+                    }
+                    phase.records(mapping.size());
+                }
+            }
 
-            for (Map.Entry<String, String> entry : mapping.entrySet()) {
-                String oldPath = entry.getKey();
-                String newPath = entry.getValue();
+            results.logStatistics();
 
-                // Process paths for both Excel and JSON creation
-                rowIndex = processPaths(oldJson, newJson, oldPath, newPath, sheet, rowIndex, resultJson);
+            // Write the output JSON file
+            try (RunMetrics.Phase phase = metrics.start("writeJson")) {
+                ResultJsonTrie resultJson = new ResultJsonTrie(mapping);
+                // Old elements with no new counterpart have nowhere to go and are skipped
+                results.forEachNewValue(resultJson::put);
+                resultJson.writeTo(objectMapper, new File(outputJsonPath));
+                phase.records(resultJson.size()).bytes(new File(outputJsonPath).length());
             }
 
-            // Write the output JSON file
-            objectMapper.writerWithDefaultPrettyPrinter().writeValue(new File(outputJsonPath), resultJson);
+            // Write the report, an Excel workbook unless -Dreport.format=csv or jsonl
+            String reportPath;
+            try (RunMetrics.Phase phase = metrics.start("writeReport")) {
+                long rows;
+                try (ReportSink report = ReportSink.open(outputExcelPath, "Comparison Results",
+                        "Old Path", "New Path", "Old Value", "New Value", "Matched/Not Matched")) {
+                    results.writeReport(report);
+                    rows = report.getTotalRows();
+                    reportPath = report.getPath();
+                }
+                phase.records(rows).bytes(new File(reportPath).length());
+            }
 
-            // Write the Excel file
-            try (FileOutputStream fos = new FileOutputStream(outputExcelPath)) {
-                workbook.write(fos);
+            // Optionally also as CSV, e.g. -Dreport.csv=Data/output.csv
+            String outputCsvPath = System.getProperty("report.csv");
+            if (outputCsvPath != null) {
+                try (RunMetrics.Phase phase = metrics.start("writeCsv")) {
+                    results.writeCsv(new File(outputCsvPath));
+                    phase.records(results.size()).bytes(new File(outputCsvPath).length());
+                }
             }
 
-            logger.info("Comparison complete. Output written to: {} and {}", outputExcelPath, outputJsonPath);
+            logger.info("Comparison complete. Output written to: {} and {}", reportPath, outputJsonPath);
 
         } catch (Exception e) {
             logger.error("An error occurred during comparison", e);
         }
+        metrics.finish();
     }
 
-    private static Map<String, String> readMapping(String filePath) throws IOException {
-        Map<String, String> mapping = new HashMap<>();
-        try (FileInputStream fis = new FileInputStream(new File(filePath));
-             Workbook workbook = new XSSFWorkbook(fis)) {
-            Sheet sheet = workbook.getSheetAt(0);
-            boolean isFirstRow = true; // Flag to skip the header row
-            for (Row row : sheet) {
-                if (isFirstRow) {
-                    isFirstRow = false; // Skip the first row
-                    continue;
-                }
-                if (row.getCell(0) == null || row.getCell(1) == null) {
-                    logger.warn("Skipping row {} due to missing cells", row.getRowNum());
-                    continue;
-                }
-                String oldPath = row.getCell(0).getStringCellValue();
-                String newPath = row.getCell(1).getStringCellValue();
-                mapping.put(oldPath, newPath);
-                logger.debug("Mapping added: {} -> {}", oldPath, newPath);
-            }
-        }
-        return mapping;
-    }
-
-    private static int processPaths(JsonNode oldJson, JsonNode newJson, String oldPath, String newPath, Sheet sheet, int rowIndex, ObjectNode resultJson) {
-        String[] oldKeys = oldPath.split("/");
-        String[] newKeys = newPath.split("/");
-
-        String oldValue = findNodeValue(oldJson, oldKeys, 0, "");
-        String newValue = findNodeValue(newJson, newKeys, 0, "");
-        return processNode(oldValue, newValue, oldPath, newPath, rowIndex, sheet, resultJson);
+    private static CompiledMapping readMapping(String filePath) throws IOException {
+        return MappingReader.read(filePath);
     }
-    
-    private static String findNodeValue(JsonNode jsonContent, String[] keys, int level, String currentPath) {
-        if (level == keys.length) {
-            return jsonContent.asText(null);
-        }
 
-        String key = keys[level];
-        if (key.isEmpty()) {
-            return findNodeValue(jsonContent, keys, level + 1, currentPath);
+    /**
+     * Streams the arrays of both files in step and compares the i-th old element with the
+     * i-th new element, so only one pair of records is held in memory at a time. Pairing the
+     * top-level elements by key would mean holding every unpaired element until its partner
+     * arrives, so a key configured for these arrays is not used here; use the in-memory mode
+     * when the files list the same claims in different orders.
+     */
+    private static long compareStreaming(ObjectMapper objectMapper, File oldFile, File newFile, CompiledMapping mapping, ComparisonResultStore results) throws IOException {
+        Map<String, String> keyFields = WildcardComparator.parseKeyFields(System.getProperty("array.keys", ""));
+        if (keyFields.containsKey(arrayName(OLD_ARRAY_POINTER)) || keyFields.containsKey(arrayName(NEW_ARRAY_POINTER))) {
+            logger.warn("--stream pairs {} and {} by position; their array.keys entries only apply without --stream",
+                    OLD_ARRAY_POINTER, NEW_ARRAY_POINTER);
         }
-
-        if (key.endsWith("[*]")) {
-            String arrayKey = key.substring(0, key.indexOf("[*]"));
-            JsonNode arrayNode = jsonContent.path(arrayKey);
-
-            if (arrayNode.isArray()) {
-                Iterator<JsonNode> elements = arrayNode.elements();
-                if (elements.hasNext()) {
-                    // For simplicity, process the first element of the array
-                    return findNodeValue(elements.next(), keys, level + 1, currentPath + "/" + arrayKey + "[*]");
-                } else {
-                    logger.warn("Array at key '{}' is empty", arrayKey);
-                    return null;
+        try (StreamingArrayReader oldReader = StreamingArrayReader.open(objectMapper, oldFile, OLD_ARRAY_POINTER);
+             StreamingArrayReader newReader = StreamingArrayReader.open(objectMapper, newFile, NEW_ARRAY_POINTER)) {
+            long pairs = 0;
+            JsonNode oldElement = oldReader.next();
+            JsonNode newElement = newReader.next();
+            while (oldElement != null && newElement != null) {
+                for (CompiledMapping.Entry entry : mapping) {
+                    processPaths(oldElement, newElement, entry, results);
                 }
-            } else {
-                logger.warn("Expected array at key '{}' but found: {}", arrayKey, arrayNode);
-                return null;
+                pairs++;
+                oldElement = oldReader.next();
+                newElement = newReader.next();
             }
-        } else {
-            return findNodeValue(jsonContent.path(key), keys, level + 1, currentPath + "/" + key);
+            if (oldElement != null || newElement != null) {
+                logger.warn("Arrays {} and {} differ in length, unpaired elements were skipped", OLD_ARRAY_POINTER, NEW_ARRAY_POINTER);
+            }
+            return pairs;
         }
     }
-    
-    private static int processNode(String oldValue, String newValue, String oldPath, String newPath, int rowIndex, Sheet sheet, ObjectNode resultJson) {
-        String matchStatus = (oldValue != null && oldValue.equals(newValue)) ? "Matched" : "Not Matched";
-
-        // Write to Excel
-        Row row = sheet.createRow(rowIndex++);
-        row.createCell(0).setCellValue(oldPath); // Old Path
-        row.createCell(1).setCellValue(newPath); // New Path
-        row.createCell(2).setCellValue(oldValue != null ? oldValue : "null"); // Old Value
-        row.createCell(3).setCellValue(newValue != null ? newValue : "null"); // New Value
-        row.createCell(4).setCellValue(matchStatus); // Match Status
 
-        // Update result JSON
-        updateJsonResult(resultJson, newPath.split("/"), newValue, oldValue);
+    // Last segment of a JSON pointer, the field name array.keys uses for that array
+    private static String arrayName(String pointer) {
+        return pointer.substring(pointer.lastIndexOf('/') + 1);
+    }
 
-        return rowIndex;
+    private static void processPaths(JsonNode oldJson, JsonNode newJson, CompiledMapping.Entry entry, ComparisonResultStore results) throws IOException {
+        // Every element of each [*] array is compared, paired by key where array.keys configures one
+        long[] lookupStart = {RunMetrics.now()};
+        arrayComparator.compare(oldJson, newJson, entry, (oldIndexes, newIndexes, oldNode, newNode) -> {
+            metrics.record("pathLookup", lookupStart[0], 1);
+            processNode(oldNode, newNode, entry, oldIndexes, newIndexes, results);
+            lookupStart[0] = RunMetrics.now();
+        });
+        metrics.record("pathLookup", lookupStart[0], 0);
+    }
+    
+    private static void processNode(JsonNode oldNode, JsonNode newNode, CompiledMapping.Entry entry, int[] oldIndexes, int[] newIndexes,
+                                    ComparisonResultStore results) throws IOException {
+        // Compared by type on the nodes; text is only produced for the stored row
+        boolean matched = ValueComparator.matches(oldNode, newNode);
+
+        // Store the row; the Excel, JSON and CSV outputs are rendered from the store afterwards
+        long storeStart = RunMetrics.now();
+        results.add(oldIndexes != null ? entry.getOldPath() : null, oldIndexes, newIndexes != null ? entry.getNewPath() : null, newIndexes,
+                ValueComparator.text(oldNode), ValueComparator.text(newNode), matched);
+        metrics.record("storeRows", storeStart, 1);
     }
 
     /*private static int processNode(JsonNode oldNode, JsonNode newNode, String[] oldKeys, String[] newKeys, int level, String currentPath, Sheet sheet, int rowIndex, ObjectNode resultJson) {
@@ -200,31 +218,6 @@ public class ArrayBasedJsonCompare {
         return rowIndex;
     }*/
 
-    private static void updateJsonResult(ObjectNode resultJson, String[] newKeys, String newValue, String oldValue) {
-        ObjectNode currentNode = resultJson;
-
-        for (int i = 0; i < newKeys.length - 1; i++) {
-            String key = newKeys[i];
-
-            if (key.endsWith("[*]")) {
-                // Handle array elements
-                String arrayKey = key.substring(0, key.indexOf("[*]"));
-                ArrayNode arrayNode = (ArrayNode) currentNode.withArray(arrayKey);
-
-                // Add placeholder object if array is empty
-                if (arrayNode.size() == 0) {
-                    arrayNode.addObject();
-                }
-                currentNode = (ObjectNode) arrayNode.get(0); // Use first array element for simplicity
-            } else {
-                currentNode = currentNode.with(key);
-            }
-        }
-
-        String key = newKeys[newKeys.length - 1];
-        String resultValue = (oldValue != null && oldValue.equals(newValue)) ? newValue : "Value not matched";
-        currentNode.put(key, resultValue);
-    }
     
    /* private static int createRecord(JsonNode oldNode, JsonNode newNode, String currentPath, Sheet sheet, int rowIndex) {
         String oldValue = oldNode.asText(null);
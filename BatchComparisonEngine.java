@@ -0,0 +1,121 @@
+package JSON;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs independent comparison tasks (one per folder or file pair) on a bounded fork-join
+ * pool. Each task fills its own result buffer, so workers never share a POI sheet or a
+ * JsonNode; the buffers are handed back in input order, so merging them gives the same
+ * report as a sequential run whatever order the tasks finished in.
+ */
+public final class BatchComparisonEngine implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchComparisonEngine.class);
+
+    public static final String THREADS_PROPERTY = "batch.threads";
+
+    public interface Task<T, R> {
+        /** Compares one input and returns its private result buffer. */
+        R run(T input) throws Exception;
+    }
+
+    private final ForkJoinPool pool;
+    private int failedCount;
+
+    /**
+     * Creates an engine sized by -Dbatch.threads, defaulting to the number of cores.
+     */
+    public BatchComparisonEngine() {
+        this(Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public BatchComparisonEngine(int parallelism) {
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+    }
+
+    /**
+     * Runs the task for every input and returns the results in input order. Inputs whose
+     * task failed are logged and left out.
+     */
+    public <T, R> List<R> run(List<T> inputs, Task<T, R> task) {
+        Object[] results = new Object[inputs.size()];
+        Throwable[] failures = new Throwable[inputs.size()];
+        pool.invoke(new Slice<>(inputs, task, results, failures, 0, inputs.size()));
+
+        List<R> merged = new ArrayList<>(inputs.size());
+        failedCount = 0;
+        for (int i = 0; i < results.length; i++) {
+            if (failures[i] != null) {
+                failedCount++;
+                logger.error("Batch item {} failed", inputs.get(i), failures[i]);
+                continue;
+            }
+            @SuppressWarnings("unchecked")
+            R result = (R) results[i];
+            merged.add(result);
+        }
+        logger.info("Batch of {} items finished on {} threads, {} failed", inputs.size(), pool.getParallelism(), failedCount);
+        return merged;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /** Number of inputs whose task failed during the last run. */
+    public int getFailedCount() {
+        return failedCount;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    // Splits the input range in halves so idle workers can steal the other half
+    private static final class Slice<T, R> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<T> inputs;
+        private final Task<T, R> task;
+        private final Object[] results;
+        private final Throwable[] failures;
+        private final int from;
+        private final int to;
+
+        Slice(List<T> inputs, Task<T, R> task, Object[] results, Throwable[] failures, int from, int to) {
+            this.inputs = inputs;
+            this.task = task;
+            this.results = results;
+            this.failures = failures;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (from < to) runOne(from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Slice<>(inputs, task, results, failures, from, middle),
+                    new Slice<>(inputs, task, results, failures, middle, to));
+        }
+
+        // Each slot is written by exactly one worker; invoke() makes the writes visible to the caller
+        private void runOne(int i) {
+            try {
+                results[i] = task.run(inputs.get(i));
+            } catch (Exception e) {
+                failures[i] = e;
+            }
+        }
+    }
+}
@@ -6,18 +6,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 //Import necessary classes
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
@@ -27,136 +22,181 @@ public class CompareJsonObjectsDynamic {
 
     private static final Logger logger = LoggerFactory.getLogger(CompareJsonObjectsDynamic.class);
 
+    private static final String CLAIMS_POINTER = "/searchResult/searchOutput/claims";
+
+    // Numbers the matched pairs of a run
+    private static final AtomicLong PAIR_SEQUENCE = new AtomicLong();
+
     public static void main(String[] args) {
         String mappingFilePath = "C:\\Users\\nezam\\eclipse-workspace\\Canocial\\src\\main\\java\\Data\\mappingForFilteringFiles.xlsx";        
         String response1FilePath = "C:\\Users\\nezam\\eclipse-workspace\\Canocial\\src\\main\\java\\Data\\response1.json";
         String response2FilePath = "C:\\Users\\nezam\\eclipse-workspace\\Canocial\\src\\main\\java\\Data\\response2.json";
+        boolean streaming = args.length > 0 && "--stream".equals(args[0]);
+        boolean jsonLines = args.length > 0 && "--jsonl".equals(args[0]);
+        boolean fuzzy = args.length > 0 && "--fuzzy".equals(args[0]);
+        if (jsonLines && args.length >= 3) {
+            // --jsonl response1.jsonl response2.jsonl
+            response1FilePath = args[1];
+            response2FilePath = args[2];
+        }
 
-        try {
+        ObjectMapper objectMapper = new ObjectMapper();
+        // Matched pairs are written on a background thread, as files or one container per run
+        String runStamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        try (MatchedRecordWriter output = new MatchedRecordWriter(objectMapper, new File("."), "matched_" + runStamp)) {
             // Load the mapping file
-            Map<String, String> mapping = readMapping(mappingFilePath);
+            CompiledMapping mapping = readMapping(mappingFilePath);
+
+            if (jsonLines) {
+                compareJsonLines(objectMapper, mapping, new File(response1FilePath), new File(response2FilePath), output);
+                return;
+            }
 
             // Load JSON files
-            ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode response1Root = objectMapper.readTree(new File(response1FilePath));
             JsonNode response2Root = objectMapper.readTree(new File(response2FilePath));
+            JsonNode response2Array = response2Root.get("data");
+
+            // Index the payer side once and probe it per legacy record
+            HashJoinMatcher matcher = new HashJoinMatcher(mapping, HashJoinMatcher.Rule.ANY_FIELD);
+            HashJoinMatcher.MatchHandler handler =
+                    (response1Document, response2Document) -> saveMatchedPair(response1Document, response2Document, objectMapper, output);
+
+            if (streaming) {
+                if (response2Array == null || !response2Array.isArray()) {
+                    logger.error("Expected response2 to contain an array");
+                    return;
+                }
+                // Claims are read one at a time, so response1 never has to fit on the heap
+                matcher.index(response2Array);
+                long[] matched = new long[1];
+                long claims = StreamingArrayReader.forEachElement(objectMapper, new File(response1FilePath), CLAIMS_POINTER,
+                        response1Document -> matched[0] += matcher.probe(response1Document, handler));
+                logger.info("Matching complete. {} matched pairs found across {} streamed claims", matched[0], claims);
+                return;
+            }
+
+            JsonNode response1Root = objectMapper.readTree(new File(response1FilePath));
 
          // Extract nodes to compare
             JsonNode response1Array = response1Root.get("searchResult").get("searchOutput").get("claims");
-            JsonNode response2Array = response2Root.get("data");
 
             if (!response1Array.isArray() || !response2Array.isArray()) {
                 logger.error("Expected both responses to contain arrays");
                 return;
             }
 
-            // Compare and create output files
-            for (JsonNode response1Document : response1Array) {
-                for (JsonNode response2Document : response2Array) {
-                    if (compareUsingMapping(response1Document, response2Document, mapping)) {
-                        // Create output files for matched pairs
-                    	System.out.println(response1Document);
-                    	System.out.println(response2Document);
-                    	// Get current DateTime for naming
-                        String dateTime = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-
-                     // Adjust the loop to wrap the JSON arrays before creating files
-                        ArrayNode wrappedResponse1Array = objectMapper.createArrayNode();
-                        ArrayNode wrappedResponse2Array = objectMapper.createArrayNode();
-                        
-                        wrappedResponse1Array.add(response1Document);
-                        wrappedResponse2Array.add(response2Document);                        
-
-
-                        // Create the final JSON structure for response1
-                        ObjectNode finalResponse1 = objectMapper.createObjectNode();
-                        finalResponse1.set("searchResult", objectMapper.createObjectNode()
-                            .set("searchOutput", objectMapper.createObjectNode()
-                                .set("claims", wrappedResponse1Array)));
-
-                        // Create the final JSON structure for response2
-                        ObjectNode finalResponse2 = objectMapper.createObjectNode();
-                        finalResponse2.set("data", wrappedResponse2Array);
-
-                        // Create output files
-                        createJsonFile("response1_" + dateTime + ".json", finalResponse1, objectMapper);
-                        createJsonFile("response2_" + dateTime + ".json", finalResponse2, objectMapper);
-                        
-                        //logger.info("Match found: Document ID {} with User ID {}", response1Document.get("claimNumber").asText(), response2Document.get("payerClaimControlNumber").asText());
-                    }
-                }
+            if (fuzzy) {
+                // Pair each claim with its most similar record, for values that differ only in formatting
+                FuzzyBlockMatcher fuzzyMatcher = new FuzzyBlockMatcher(mapping);
+                int matched = fuzzyMatcher.match(response1Array, response2Array, (response1Document, response2Document, score) -> {
+                    logger.info("Fuzzy match with score {}", String.format("%.2f", score));
+                    saveMatchedPair(response1Document, response2Document, objectMapper, output);
+                });
+                logger.info("Fuzzy matching complete. {} of {} claims matched", matched, response1Array.size());
+                return;
             }
 
+            int matched = matcher.match(response1Array, response2Array, handler);
+            logger.info("Matching complete. {} matched pairs found", matched);
+
         } catch (IOException e) {
             logger.error("An error occurred while processing", e);
         }
     }
 
-    private static Map<String, String> readMapping(String filePath) throws IOException {
-        Map<String, String> mapping = new HashMap<>();
-        try (FileInputStream fis = new FileInputStream(new File(filePath));
-             Workbook workbook = new XSSFWorkbook(fis)) {
-            Sheet sheet = workbook.getSheetAt(0);
-            boolean isFirstRow = true; // Skip header row
-            for (Row row : sheet) {
-                if (isFirstRow) {
-                    isFirstRow = false;
-                    continue;
+    private static CompiledMapping readMapping(String filePath) throws IOException {
+        return MappingReader.read(filePath);
+    }
+
+    /**
+     * Matches two JSON Lines files, one record per line. Both files are cut into byte-range
+     * chunks at newlines: the response2 chunks are parsed in parallel to build the index, then
+     * the response1 chunks are parsed and probed in parallel, a few chunks at a time, and
+     * their matches are saved in file order.
+     */
+    private static void compareJsonLines(ObjectMapper objectMapper, CompiledMapping mapping, File response1File, File response2File, MatchedRecordWriter output) throws IOException {
+        try (BatchComparisonEngine engine = new BatchComparisonEngine()) {
+            List<List<JsonNode>> response2Chunks = engine.run(JsonLinesReader.split(response2File), chunk -> {
+                List<JsonNode> records = new ArrayList<>();
+                JsonLinesReader.forEachLine(objectMapper, chunk, records::add);
+                return records;
+            });
+            if (engine.getFailedCount() > 0) {
+                throw new IOException("Failed to read " + response2File);
+            }
+            ArrayNode response2Array = objectMapper.createArrayNode();
+            for (List<JsonNode> records : response2Chunks) {
+                response2Array.addAll(records);
+            }
+
+            HashJoinMatcher matcher = new HashJoinMatcher(mapping, HashJoinMatcher.Rule.ANY_FIELD);
+            matcher.index(response2Array);
+
+            // Only a window of chunks is in flight, so matches are written as the file is read
+            List<JsonLinesReader.Chunk> chunks = JsonLinesReader.split(response1File);
+            int window = engine.getParallelism() * 2;
+            long matched = 0;
+            for (int from = 0; from < chunks.size(); from += window) {
+                List<JsonLinesReader.Chunk> batch = chunks.subList(from, Math.min(from + window, chunks.size()));
+                List<List<JsonNode[]>> results = engine.run(batch, chunk -> {
+                    HashJoinMatcher probe = matcher.shareIndex();
+                    List<JsonNode[]> pairs = new ArrayList<>();
+                    JsonLinesReader.forEachLine(objectMapper, chunk, response1Document ->
+                            probe.probe(response1Document, (legacyRecord, payerRecord) -> pairs.add(new JsonNode[] {legacyRecord, payerRecord})));
+                    return pairs;
+                });
+                // The engine has logged each failed chunk's byte range; a partial match set is not a result
+                if (engine.getFailedCount() > 0) {
+                    throw new IOException("Failed to read " + engine.getFailedCount() + " chunk(s) of " + response1File
+                            + " between bytes " + batch.get(0).getStart() + " and " + batch.get(batch.size() - 1).getEnd());
                 }
-                if (row.getCell(0) == null || row.getCell(1) == null) {
-                    logger.warn("Skipping row {} due to missing cells", row.getRowNum());
-                    continue;
+                for (List<JsonNode[]> pairs : results) {
+                    for (JsonNode[] pair : pairs) {
+                        saveMatchedPair(pair[0], pair[1], objectMapper, output);
+                    }
+                    matched += pairs.size();
                 }
-                String key = row.getCell(0).getStringCellValue();
-                String value = row.getCell(1).getStringCellValue();
-                mapping.put(key, value);
             }
+            logger.info("Matching complete. {} matched pairs found across {} JSONL chunks of {}", matched, chunks.size(), response1File);
         }
-        return mapping;
     }
 
-    private static boolean compareUsingMapping(JsonNode response1Document, JsonNode response2Document, Map<String, String> mapping) {
-        for (Map.Entry<String, String> entry : mapping.entrySet()) {
-            String oldPathKey = entry.getKey();
-            String newPathKey = entry.getValue();
+    // Create output files for a matched pair
+    private static void saveMatchedPair(JsonNode response1Document, JsonNode response2Document, ObjectMapper objectMapper, MatchedRecordWriter output) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Matched pair: {} / {}", response1Document, response2Document);
+        }
+        // Get current DateTime for naming; the pair number keeps pairs from the same second apart
+        String dateTime = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"))
+                + "_" + String.format("%06d", PAIR_SEQUENCE.incrementAndGet());
 
-            String oldValue = findNodeValue(response1Document, oldPathKey.split("/"), 0);
-            String newValue = findNodeValue(response2Document, newPathKey.split("/"), 0);
+        // Adjust the loop to wrap the JSON arrays before creating files
+        ArrayNode wrappedResponse1Array = objectMapper.createArrayNode();
+        ArrayNode wrappedResponse2Array = objectMapper.createArrayNode();
 
-            if (oldValue != null && oldValue.equals(newValue)) {
-                return true;
-            }
-        }
-        return false;
-    }
+        wrappedResponse1Array.add(response1Document);
+        wrappedResponse2Array.add(response2Document);
 
-    private static String findNodeValue(JsonNode jsonNode, String[] keys, int level) {
-        if (level >= keys.length) {
-            return jsonNode.isValueNode() ? jsonNode.asText(null) : null;
-        }
+        // Create the final JSON structure for response1
+        ObjectNode finalResponse1 = objectMapper.createObjectNode();
+        finalResponse1.set("searchResult", objectMapper.createObjectNode()
+            .set("searchOutput", objectMapper.createObjectNode()
+                .set("claims", wrappedResponse1Array)));
 
-        String key = keys[level];
+        // Create the final JSON structure for response2
+        ObjectNode finalResponse2 = objectMapper.createObjectNode();
+        finalResponse2.set("data", wrappedResponse2Array);
 
-        if (key.endsWith("[*]")) {
-            String arrayKey = key.substring(0, key.indexOf("[*]"));
-            JsonNode arrayNode = jsonNode.path(arrayKey);
+        // Create output files
+        createJsonFile("response1_" + dateTime + ".json", finalResponse1, output);
+        createJsonFile("response2_" + dateTime + ".json", finalResponse2, output);
 
-            if (arrayNode.isArray() && arrayNode.size() > 0) {
-                // For simplicity, check the first element of the array
-                return findNodeValue(arrayNode.get(0), keys, level + 1);
-            } else {
-                logger.warn("Expected array at key '{}' but found: {}", arrayKey, arrayNode);
-                return null;
-            }
-        } else {
-            return findNodeValue(jsonNode.path(key), keys, level + 1);
-        }
+        //logger.info("Match found: Document ID {} with User ID {}", response1Document.get("claimNumber").asText(), response2Document.get("payerClaimControlNumber").asText());
     }
 
-    private static void createJsonFile(String fileName, JsonNode jsonContent, ObjectMapper objectMapper) {
-        try (FileWriter fileWriter = new FileWriter(fileName)) {
-            objectMapper.writerWithDefaultPrettyPrinter().writeValue(fileWriter, jsonContent);
-            logger.info("File created: {}", fileName);
+    private static void createJsonFile(String fileName, JsonNode jsonContent, MatchedRecordWriter output) {
+        try {
+            output.write(fileName, jsonContent);
         } catch (IOException e) {
             logger.error("Failed to create file {}: {}", fileName, e.getMessage());
         }
@@ -0,0 +1,413 @@
+package JSON;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds comparison result rows outside the Java heap until they are rendered. Rows are
+ * stored column by column, each column in its own temporary file: old and new path ids,
+ * the element indexes of each path, old and new value offsets and the match flag. A path
+ * is interned as its mapping path ("claims[*]/amount") plus the index chosen at each
+ * [*], so the path dictionary has an entry per mapping path however many array elements
+ * are compared. Values are stored once as UTF-8 in a values file, with short repeated
+ * values shared. Once the comparison is done the columns are memory-mapped and read back
+ * in order by the Excel, CSV and JSON renderers, so one compare pass can feed several
+ * report formats, and a renderer only maps the columns it reads.
+ *
+ * The temporary files go to -Dresult.store.dir (default java.io.tmpdir) and are deleted
+ * on close(). Not thread-safe.
+ */
+public final class ComparisonResultStore implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ComparisonResultStore.class);
+
+    public static final String STORE_DIR_PROPERTY = "result.store.dir";
+
+    private static final long COLUMN_SEGMENT_BYTES = 1L << 26; // 64 MB of a column mapped at a time
+    private static final long VALUE_SEGMENT_BYTES = 1L << 28; // Values never straddle a 256 MB mapping
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final long NULL_REF = -1;
+
+    // Only short values are shared, and only this many, so the dictionary stays small
+    private static final int MAX_SHARED_VALUE_CHARS = 64;
+    private static final int MAX_SHARED_VALUES = 1 << 16;
+
+    /**
+     * Receives the stored rows in the order they were added. Values are null where the
+     * compared path had no value.
+     */
+    public interface RowHandler {
+        void onRow(String oldPath, String newPath, String oldValue, String newValue, boolean matched) throws IOException;
+    }
+
+    /**
+     * Receives the new side of the rows that have one, as the mapping path and the index
+     * chosen at each of its [*] (-1 where it was not fanned out). The index array is
+     * reused, so it is only valid during the call.
+     */
+    public interface NewValueHandler {
+        void onValue(CompiledPath newPath, int[] newIndexes, String newValue, boolean matched) throws IOException;
+    }
+
+    private final File valuesFile;
+    private final FileChannel values;
+    private final ByteBuffer valueBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+
+    private final Column oldPathIds;
+    private final Column newPathIds;
+    private final Column oldIndexes;
+    private final Column newIndexes;
+    private final Column oldValues;
+    private final Column newValues;
+    private final Column matchFlags;
+
+    private final Map<String, Integer> pathIds = new HashMap<>();
+    private final List<CompiledPath> paths = new ArrayList<>();
+    private final Map<String, Long> sharedValues = new HashMap<>();
+    private int maxWildcards;
+
+    private long rowCount;
+    private long valuesLength; // Including values still in valueBuffer
+    private long valuesFlushed; // File position the buffer is written at
+    private byte[] scratch = new byte[256];
+
+    public ComparisonResultStore() throws IOException {
+        this(new File(System.getProperty(STORE_DIR_PROPERTY, System.getProperty("java.io.tmpdir"))));
+    }
+
+    public ComparisonResultStore(File directory) throws IOException {
+        directory.mkdirs();
+        valuesFile = File.createTempFile("results", ".values", directory);
+        valuesFile.deleteOnExit();
+        values = FileChannel.open(valuesFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        oldPathIds = new Column(directory, "oldPath");
+        newPathIds = new Column(directory, "newPath");
+        oldIndexes = new Column(directory, "oldIndexes");
+        newIndexes = new Column(directory, "newIndexes");
+        oldValues = new Column(directory, "oldValue");
+        newValues = new Column(directory, "newValue");
+        matchFlags = new Column(directory, "matched");
+    }
+
+    /**
+     * Appends one result row. A null path means that side has no path in the row; the
+     * indexes give the element chosen at each [*] of the path (-1 renders as "[*]") and may
+     * be null for a path without any. Values may be null.
+     */
+    public void add(CompiledPath oldPath, int[] oldPathIndexes, CompiledPath newPath, int[] newPathIndexes,
+                    String oldValue, String newValue, boolean matched) throws IOException {
+        addPath(oldPath, oldPathIndexes, oldPathIds, oldIndexes);
+        addPath(newPath, newPathIndexes, newPathIds, newIndexes);
+        oldValues.putLong(valueRef(oldValue));
+        newValues.putLong(valueRef(newValue));
+        matchFlags.put(matched ? (byte) 1 : (byte) 0);
+        rowCount++;
+    }
+
+    private void addPath(CompiledPath path, int[] indexes, Column ids, Column indexColumn) throws IOException {
+        if (path == null) {
+            ids.putInt(-1);
+            return;
+        }
+        ids.putInt(pathId(path));
+        for (int i = 0; i < path.wildcardCount(); i++) {
+            indexColumn.putInt(indexes[i]);
+        }
+    }
+
+    private int pathId(CompiledPath path) {
+        Integer id = pathIds.get(path.getPath());
+        if (id == null) {
+            id = paths.size();
+            paths.add(path);
+            pathIds.put(path.getPath(), id);
+            maxWildcards = Math.max(maxWildcards, path.wildcardCount());
+        }
+        return id;
+    }
+
+    private long valueRef(String value) throws IOException {
+        if (value == null) return NULL_REF;
+        boolean shareable = value.length() <= MAX_SHARED_VALUE_CHARS;
+        if (shareable) {
+            Long ref = sharedValues.get(value);
+            if (ref != null) return ref;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int recordLength = 4 + bytes.length;
+        if (recordLength > VALUE_SEGMENT_BYTES) {
+            throw new IOException("Value of " + bytes.length + " bytes is too large for the result store");
+        }
+        // Start the value in the next segment rather than split it over two mappings
+        long segmentEnd = (valuesLength / VALUE_SEGMENT_BYTES + 1) * VALUE_SEGMENT_BYTES;
+        if (valuesLength + recordLength > segmentEnd) {
+            flush(values, valueBuffer, valuesFlushed);
+            valuesFlushed = segmentEnd;
+            valuesLength = segmentEnd;
+        }
+
+        long ref = valuesLength;
+        writeValue(bytes);
+        valuesLength += recordLength;
+        if (shareable && sharedValues.size() < MAX_SHARED_VALUES) {
+            sharedValues.put(value, ref);
+        }
+        return ref;
+    }
+
+    private void writeValue(byte[] bytes) throws IOException {
+        if (valueBuffer.remaining() < 4) valuesFlushed = flush(values, valueBuffer, valuesFlushed);
+        valueBuffer.putInt(bytes.length);
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!valueBuffer.hasRemaining()) valuesFlushed = flush(values, valueBuffer, valuesFlushed);
+            int length = Math.min(valueBuffer.remaining(), bytes.length - offset);
+            valueBuffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    // Writes the buffered bytes at position and returns the position after them
+    private static long flush(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        buffer.clear();
+        return position;
+    }
+
+    public long size() {
+        return rowCount;
+    }
+
+    public int pathCount() {
+        return paths.size();
+    }
+
+    /**
+     * Bytes held off the heap: all columns plus the stored values.
+     */
+    public long storedBytes() {
+        return oldPathIds.length() + newPathIds.length() + oldIndexes.length() + newIndexes.length()
+                + oldValues.length() + newValues.length() + matchFlags.length() + valuesLength;
+    }
+
+    /**
+     * Reads every row back, in the order added. Rows can still be added afterwards.
+     */
+    public void forEach(RowHandler handler) throws IOException {
+        valuesFlushed = flush(values, valueBuffer, valuesFlushed);
+        Column.Cursor oldIds = oldPathIds.cursor();
+        Column.Cursor newIds = newPathIds.cursor();
+        Column.Cursor oldIndexCursor = oldIndexes.cursor();
+        Column.Cursor newIndexCursor = newIndexes.cursor();
+        Column.Cursor oldRefs = oldValues.cursor();
+        Column.Cursor newRefs = newValues.cursor();
+        Column.Cursor flags = matchFlags.cursor();
+
+        List<MappedByteBuffer> valueSegments = new ArrayList<>();
+        int[] indexes = new int[maxWildcards];
+        for (long row = 0; row < rowCount; row++) {
+            String oldPath = pathText(oldIds.getInt(), oldIndexCursor, indexes);
+            String newPath = pathText(newIds.getInt(), newIndexCursor, indexes);
+            handler.onRow(oldPath, newPath, readValue(valueSegments, oldRefs.getLong()),
+                    readValue(valueSegments, newRefs.getLong()), flags.get() != 0);
+        }
+    }
+
+    /**
+     * Reads the new side of every row that has one, in the order added, without touching
+     * the old-side columns or rendering paths as text.
+     */
+    public void forEachNewValue(NewValueHandler handler) throws IOException {
+        valuesFlushed = flush(values, valueBuffer, valuesFlushed);
+        Column.Cursor newIds = newPathIds.cursor();
+        Column.Cursor newIndexCursor = newIndexes.cursor();
+        Column.Cursor newRefs = newValues.cursor();
+        Column.Cursor flags = matchFlags.cursor();
+
+        List<MappedByteBuffer> valueSegments = new ArrayList<>();
+        int[] indexes = new int[maxWildcards];
+        for (long row = 0; row < rowCount; row++) {
+            int id = newIds.getInt();
+            long ref = newRefs.getLong();
+            boolean matched = flags.get() != 0;
+            if (id < 0) continue;
+            CompiledPath path = paths.get(id);
+            readIndexes(path, newIndexCursor, indexes);
+            handler.onValue(path, indexes, readValue(valueSegments, ref), matched);
+        }
+    }
+
+    private String pathText(int id, Column.Cursor indexCursor, int[] indexes) throws IOException {
+        if (id < 0) return null;
+        CompiledPath path = paths.get(id);
+        readIndexes(path, indexCursor, indexes);
+        return path.concretePath(indexes);
+    }
+
+    private static void readIndexes(CompiledPath path, Column.Cursor indexCursor, int[] indexes) throws IOException {
+        for (int i = 0; i < path.wildcardCount(); i++) {
+            indexes[i] = indexCursor.getInt();
+        }
+    }
+
+    private String readValue(List<MappedByteBuffer> segments, long ref) throws IOException {
+        if (ref == NULL_REF) return null;
+        MappedByteBuffer segment = segment(segments, ref);
+        int offset = (int) (ref % VALUE_SEGMENT_BYTES);
+        int length = segment.getInt(offset);
+        if (scratch.length < length) {
+            scratch = new byte[length];
+        }
+        for (int i = 0; i < length; i++) {
+            scratch[i] = segment.get(offset + 4 + i);
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private MappedByteBuffer segment(List<MappedByteBuffer> segments, long ref) throws IOException {
+        int index = (int) (ref / VALUE_SEGMENT_BYTES);
+        while (segments.size() <= index) {
+            long start = segments.size() * VALUE_SEGMENT_BYTES;
+            segments.add(values.map(FileChannel.MapMode.READ_ONLY, start, Math.min(VALUE_SEGMENT_BYTES, valuesLength - start)));
+        }
+        return segments.get(index);
+    }
+
+    /**
+     * Writes every row to the report as Old Path, New Path, Old Value, New Value, Matched/Not
+     * Matched, with "null" for a missing value as the reports always have.
+     */
+    public void writeReport(ReportSink report) throws IOException {
+        forEach((oldPath, newPath, oldValue, newValue, matched) -> report.writeRow(oldPath, newPath,
+                oldValue != null ? oldValue : "null", newValue != null ? newValue : "null", matched ? "Matched" : "Not Matched"));
+    }
+
+    /**
+     * Writes every row as CSV (RFC 4180 quoting, UTF-8) with the same columns as writeReport().
+     */
+    public void writeCsv(File file) throws IOException {
+        try (CsvReportSink csv = new CsvReportSink(file, "Old Path", "New Path", "Old Value", "New Value", "Matched/Not Matched")) {
+            writeReport(csv);
+        }
+    }
+
+    public void logStatistics() {
+        logger.info("Result store: {} rows, {} distinct mapping paths, {} MB off-heap", rowCount, paths.size(),
+                storedBytes() / (1024 * 1024));
+    }
+
+    @Override
+    public void close() throws IOException {
+        values.close();
+        delete(valuesFile);
+        for (Column column : new Column[] {oldPathIds, newPathIds, oldIndexes, newIndexes, oldValues, newValues, matchFlags}) {
+            column.close();
+        }
+    }
+
+    // A still-mapped file cannot be deleted on Windows; deleteOnExit covers that case
+    private static void delete(File file) {
+        if (!file.delete()) {
+            logger.debug("Could not delete {} yet, it is removed on exit", file);
+        }
+    }
+
+    // One fixed-width column: appended through a direct buffer, read back memory-mapped
+    private static final class Column implements Closeable {
+        private final File file;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+        private long flushed;
+
+        Column(File directory, String name) throws IOException {
+            file = File.createTempFile("results", "." + name, directory);
+            file.deleteOnExit();
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        void put(byte value) throws IOException {
+            if (!buffer.hasRemaining()) flush();
+            buffer.put(value);
+        }
+
+        void putInt(int value) throws IOException {
+            if (buffer.remaining() < 4) flush();
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            if (buffer.remaining() < 8) flush();
+            buffer.putLong(value);
+        }
+
+        long length() {
+            return flushed + buffer.position();
+        }
+
+        private void flush() throws IOException {
+            flushed = ComparisonResultStore.flush(channel, buffer, flushed);
+        }
+
+        // Reads from the start; a column holds values of one width, so none straddles a segment
+        Cursor cursor() throws IOException {
+            flush();
+            return new Cursor(channel, flushed);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+            delete(file);
+        }
+
+        static final class Cursor {
+            private final FileChannel channel;
+            private final long length;
+            private long mapped;
+            private MappedByteBuffer segment;
+
+            Cursor(FileChannel channel, long length) {
+                this.channel = channel;
+                this.length = length;
+            }
+
+            private ByteBuffer segment() throws IOException {
+                if (segment == null || !segment.hasRemaining()) {
+                    long size = Math.min(COLUMN_SEGMENT_BYTES, length - mapped);
+                    segment = channel.map(FileChannel.MapMode.READ_ONLY, mapped, size);
+                    mapped += size;
+                }
+                return segment;
+            }
+
+            byte get() throws IOException {
+                return segment().get();
+            }
+
+            int getInt() throws IOException {
+                return segment().getInt();
+            }
+
+            long getLong() throws IOException {
+                return segment().getLong();
+            }
+        }
+    }
+}
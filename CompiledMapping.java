@@ -0,0 +1,59 @@
+package JSON;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The old-path to new-path pairs of a mapping sheet with both sides compiled once,
+ * shared by all the compare classes.
+ */
+public final class CompiledMapping implements Iterable<CompiledMapping.Entry> {
+
+    public static final class Entry {
+        private final CompiledPath oldPath;
+        private final CompiledPath newPath;
+
+        Entry(CompiledPath oldPath, CompiledPath newPath) {
+            this.oldPath = oldPath;
+            this.newPath = newPath;
+        }
+
+        public CompiledPath getOldPath() {
+            return oldPath;
+        }
+
+        public CompiledPath getNewPath() {
+            return newPath;
+        }
+    }
+
+    private final List<Entry> entries;
+
+    private CompiledMapping(List<Entry> entries) {
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+    public static CompiledMapping compile(Map<String, String> mapping) {
+        List<Entry> entries = new ArrayList<>(mapping.size());
+        for (Map.Entry<String, String> entry : mapping.entrySet()) {
+            entries.add(new Entry(CompiledPath.compile(entry.getKey()), CompiledPath.compile(entry.getValue())));
+        }
+        return new CompiledMapping(entries);
+    }
+
+    public List<Entry> entries() {
+        return entries;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public Iterator<Entry> iterator() {
+        return entries.iterator();
+    }
+}
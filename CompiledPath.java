@@ -0,0 +1,170 @@
+package JSON;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+
+/**
+ * A mapping path such as "claimInfoCodes[*]/providerInfo/providerTaxId" that has been
+ * split and parsed once, so it can be evaluated against any number of documents
+ * without re-splitting the string, taking substrings or recursing.
+ */
+public final class CompiledPath {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompiledPath.class);
+
+    private static final String WILDCARD = "[*]";
+
+    private final String path;
+    private final String[] fieldNames;
+    private final boolean[] wildcards;
+    private final int[] indexes; // Array index for numeric segments, -1 otherwise
+    private final int wildcardCount;
+
+    private CompiledPath(String path, String[] fieldNames, boolean[] wildcards, int[] indexes) {
+        this.path = path;
+        this.fieldNames = fieldNames;
+        this.wildcards = wildcards;
+        this.indexes = indexes;
+        int count = 0;
+        for (boolean wildcard : wildcards) {
+            if (wildcard) count++;
+        }
+        this.wildcardCount = count;
+    }
+
+    public static CompiledPath compile(String path) {
+        String[] keys = path.split("/");
+
+        // Empty segments (leading "/" or "//") are skipped, as findNodeValue always did
+        int count = 0;
+        for (String key : keys) {
+            if (!key.isEmpty()) count++;
+        }
+
+        String[] fieldNames = new String[count];
+        boolean[] wildcards = new boolean[count];
+        int[] indexes = new int[count];
+
+        int level = 0;
+        for (String key : keys) {
+            if (key.isEmpty()) continue;
+            boolean wildcard = key.endsWith(WILDCARD);
+            String fieldName = wildcard ? key.substring(0, key.length() - WILDCARD.length()) : key;
+            fieldNames[level] = fieldName.intern();
+            wildcards[level] = wildcard;
+            indexes[level] = wildcard ? -1 : parseIndex(fieldName);
+            level++;
+        }
+        return new CompiledPath(path, fieldNames, wildcards, indexes);
+    }
+
+    private static int parseIndex(String key) {
+        if (key.isEmpty() || key.length() > 9) return -1;
+        for (int i = 0; i < key.length(); i++) {
+            if (!Character.isDigit(key.charAt(i))) return -1;
+        }
+        return Integer.parseInt(key);
+    }
+
+    /**
+     * Walks the path from the given node. Wildcard segments step into the first
+     * array element. Returns a MissingNode when the path cannot be followed.
+     */
+    public JsonNode resolve(JsonNode root) {
+        JsonNode current = root;
+        for (int level = 0; level < fieldNames.length; level++) {
+            if (!wildcards[level]) {
+                current = step(current, level);
+                continue;
+            }
+
+            JsonNode arrayNode = arrayAt(current, level);
+            if (!arrayNode.isArray()) {
+                logger.warn("Expected array at key '{}' but found: {}", fieldNames[level], arrayNode);
+                return MissingNode.getInstance();
+            }
+            if (arrayNode.size() == 0) {
+                logger.warn("Array at key '{}' is empty", fieldNames[level]);
+                return MissingNode.getInstance();
+            }
+            // For simplicity, process the first element of the array
+            current = arrayNode.get(0);
+        }
+        return current;
+    }
+
+    /**
+     * Follows one non-wildcard segment.
+     */
+    JsonNode step(JsonNode current, int level) {
+        // Numeric segments index into arrays, so JSON Pointer style paths work too
+        if (indexes[level] >= 0 && current.isArray()) {
+            return current.path(indexes[level]);
+        }
+        return current.path(fieldNames[level]);
+    }
+
+    /**
+     * Returns the node a wildcard segment iterates over ("[*]" alone means the current node).
+     */
+    JsonNode arrayAt(JsonNode current, int level) {
+        return fieldNames[level].isEmpty() ? current : current.path(fieldNames[level]);
+    }
+
+    /**
+     * Renders this path with each "[*]" replaced by the given element index, for example
+     * "claimInfoCodes[3]/providerInfo/providerTaxId". A negative index keeps the "[*]".
+     */
+    public String concretePath(int[] elementIndexes) {
+        StringBuilder builder = new StringBuilder(path.length() + 4 * wildcardCount);
+        int wildcard = 0;
+        for (int level = 0; level < fieldNames.length; level++) {
+            if (level > 0 || path.startsWith("/")) builder.append('/');
+            builder.append(fieldNames[level]);
+            if (wildcards[level]) {
+                int index = elementIndexes[wildcard++];
+                if (index < 0) {
+                    builder.append(WILDCARD);
+                } else {
+                    builder.append('[').append(index).append(']');
+                }
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the text of the node at this path, or null when it is missing or JSON null.
+     */
+    public String valueText(JsonNode root) {
+        return resolve(root).asText(null);
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public int depth() {
+        return fieldNames.length;
+    }
+
+    public String fieldName(int level) {
+        return fieldNames[level];
+    }
+
+    public boolean isWildcard(int level) {
+        return wildcards[level];
+    }
+
+    public int wildcardCount() {
+        return wildcardCount;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
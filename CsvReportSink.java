@@ -0,0 +1,70 @@
+package JSON;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes report rows as CSV (RFC 4180 quoting, CRLF line ends, UTF-8), headers first.
+ */
+public final class CsvReportSink implements ReportSink {
+
+    private static final Logger logger = LoggerFactory.getLogger(CsvReportSink.class);
+
+    private final File file;
+    private final Writer writer;
+    private long totalRows;
+
+    public CsvReportSink(File file, String... headers) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) parent.mkdirs();
+        this.file = file;
+        this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+        writeLine(headers);
+    }
+
+    @Override
+    public void writeRow(String... values) throws IOException {
+        writeLine(values);
+        totalRows++;
+    }
+
+    private void writeLine(String... cells) throws IOException {
+        for (int i = 0; i < cells.length; i++) {
+            if (i > 0) writer.write(',');
+            String cell = cells[i];
+            if (cell == null) continue;
+            if (cell.indexOf(',') >= 0 || cell.indexOf('"') >= 0 || cell.indexOf('\n') >= 0 || cell.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(cell.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(cell);
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    @Override
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    @Override
+    public String getPath() {
+        return file.getPath();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+        logger.info("CSV report written: {} ({} rows)", file, totalRows);
+    }
+}
@@ -0,0 +1,214 @@
+package JSON;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches directories with a WatchService and reports the files that were created or
+ * changed in them, so a resident process can handle new inputs as they arrive instead of
+ * rescanning everything in a new JVM. A file is only reported once no event has been seen
+ * for it for -Dwatch.settle.ms (default 500), so files still being written are not read
+ * half-done, and it is not reported again unless its modification time or length changes.
+ * Deleted files are not reported. When events were lost (OVERFLOW) the directory is
+ * rescanned. With recursive set, directories created later are watched as well.
+ */
+public final class DirectoryWatcher implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DirectoryWatcher.class);
+
+    public static final String SETTLE_PROPERTY = "watch.settle.ms";
+    private static final long DEFAULT_SETTLE_MILLIS = 500;
+    private static final long SHUTDOWN_WAIT_MILLIS = 10_000;
+
+    public interface ChangeHandler {
+        /** Called on the watching thread with the files that settled since the last call. */
+        void onChanges(List<File> files) throws IOException;
+    }
+
+    private final String suffix;
+    private final long settleMillis;
+    private final boolean recursive;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    private final Map<Path, Long> pending = new LinkedHashMap<>(); // File -> time of its last event
+    private final Map<Path, String> reported = new HashMap<>();   // File -> stamp when last reported
+    private volatile boolean closed;
+
+    /**
+     * Creates a watcher for files ending in suffix, configured from -Dwatch.settle.ms.
+     */
+    public DirectoryWatcher(String suffix, boolean recursive) throws IOException {
+        this(suffix, Long.getLong(SETTLE_PROPERTY, DEFAULT_SETTLE_MILLIS), recursive);
+    }
+
+    public DirectoryWatcher(String suffix, long settleMillis, boolean recursive) throws IOException {
+        this.suffix = suffix;
+        this.settleMillis = Math.max(0, settleMillis);
+        this.recursive = recursive;
+        this.watchService = FileSystems.getDefault().newWatchService();
+    }
+
+    /**
+     * Starts watching the directory (and its subdirectories if recursive), creating it if
+     * needed. Files already in it count as reported, so only later changes are reported.
+     */
+    public void register(File directory) throws IOException {
+        directory.mkdirs();
+        watch(directory.toPath(), true);
+    }
+
+    private void watch(Path directory, boolean existing) throws IOException {
+        WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        directories.put(key, directory);
+        logger.debug("Watching {}", directory);
+        scan(directory, existing);
+    }
+
+    // Marks existing files as reported, or queues them when changes may have been missed
+    private void scan(Path directory, boolean existing) throws IOException {
+        File[] children = directory.toFile().listFiles();
+        if (children == null) return;
+        for (File child : children) {
+            Path path = child.toPath();
+            if (child.isDirectory()) {
+                if (recursive && !directories.containsValue(path)) watch(path, existing);
+            } else if (matches(path)) {
+                if (existing) {
+                    reported.put(path, stamp(child));
+                } else {
+                    pending.put(path, System.nanoTime());
+                }
+            }
+        }
+    }
+
+    /**
+     * Reports changes to the handler until close() is called or the JVM shuts down. A
+     * handler failure is logged and watching goes on.
+     */
+    public void run(ChangeHandler handler) throws IOException {
+        Thread watching = Thread.currentThread();
+        Thread shutdownHook = new Thread(() -> {
+            close();
+            try {
+                watching.join(SHUTDOWN_WAIT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "directory-watcher-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        logger.info("Watching {} directories for *{} files", directories.size(), suffix);
+
+        try {
+            while (!closed) {
+                WatchKey key = pending.isEmpty() ? watchService.take() : watchService.poll(settleMillis, TimeUnit.MILLISECONDS);
+                while (key != null) {
+                    handleEvents(key);
+                    key = watchService.poll();
+                }
+
+                List<File> settled = settledFiles();
+                if (settled.isEmpty()) continue;
+                try {
+                    handler.onChanges(settled);
+                } catch (IOException | RuntimeException e) {
+                    logger.error("Failed to process {}", settled, e);
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // close() was called
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // Already shutting down
+            }
+        }
+        logger.info("Stopped watching for *{} files", suffix);
+    }
+
+    private void handleEvents(WatchKey key) throws IOException {
+        Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                logger.warn("Missed file events in {}, rescanning it", directory);
+                if (directory != null) scan(directory, false);
+                continue;
+            }
+            if (directory == null) continue;
+            Path path = directory.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                pending.remove(path);
+                reported.remove(path);
+            } else if (path.toFile().isDirectory()) {
+                if (recursive && event.kind() == StandardWatchEventKinds.ENTRY_CREATE && !directories.containsValue(path)) {
+                    watch(path, false); // Files may have been written before the directory was registered
+                }
+            } else if (matches(path)) {
+                pending.remove(path); // Re-insert so the map stays in order of last event
+                pending.put(path, System.nanoTime());
+            }
+        }
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+    }
+
+    // Pending files without an event for the settle time that changed since they were last reported
+    private List<File> settledFiles() {
+        long settledBefore = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(settleMillis);
+        List<File> settled = new ArrayList<>();
+        Iterator<Map.Entry<Path, Long>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, Long> entry = iterator.next();
+            if (entry.getValue() - settledBefore > 0) break; // The rest are newer
+            iterator.remove();
+            File file = entry.getKey().toFile();
+            if (!file.isFile()) continue;
+            String stamp = stamp(file);
+            if (!stamp.equals(reported.put(entry.getKey(), stamp))) {
+                settled.add(file);
+            }
+        }
+        return settled;
+    }
+
+    private boolean matches(Path path) {
+        return path.getFileName().toString().endsWith(suffix);
+    }
+
+    private static String stamp(File file) {
+        return file.lastModified() + "|" + file.length();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.error("Failed to close the watch service", e);
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package JSON;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Matches legacy and payer records on all mapped fields when neither side fits in memory.
+ * Each input array is read once with a streaming parser and reduced to (join key, byte
+ * offset, length) entries, which are sorted in runs of -Dsort.join.run.records entries,
+ * spilled to disk and merged into one sorted key file per input. Two key files are then
+ * merge-joined in a single sequential pass, and only the records of matching pairs are
+ * read back from the input files by offset.
+ *
+ * The join key is the same composite key HashJoinMatcher uses for ALL_FIELDS; records
+ * with a missing field never match. Pairs are reported in join-key order, not file
+ * order. Memory use is bounded by the run size plus the payer records sharing one key.
+ */
+public final class ExternalSortMergeJoin {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExternalSortMergeJoin.class);
+
+    public static final String RUN_RECORDS_PROPERTY = "sort.join.run.records";
+    public static final String WORK_DIR_PROPERTY = "sort.join.dir";
+    private static final int DEFAULT_RUN_RECORDS = 100_000;
+    private static final int IO_BUFFER_SIZE = 256 * 1024;
+    private static final int MAX_CACHED_GROUP = 256; // Payer records per key kept parsed while joining
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private final CompiledMapping mapping;
+    private final File workDirectory;
+    private final int runRecords;
+
+    /** One record of an input: its join key and where it is in the file. */
+    private static final class KeyEntry {
+        private final String key;
+        private final long offset;
+        private final int length;
+
+        KeyEntry(String key, long offset, int length) {
+            this.key = key;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    // Key order, then file order for equal keys
+    private static final Comparator<KeyEntry> KEY_ORDER =
+            Comparator.<KeyEntry, String>comparing(entry -> entry.key).thenComparingLong(entry -> entry.offset);
+
+    /**
+     * An input file reduced to its sorted join keys. Can be joined any number of times;
+     * close() deletes the key file.
+     */
+    public static final class SortedKeys implements Closeable {
+        private final File source;
+        private final File keyFile;
+        private final long records;
+
+        SortedKeys(File source, File keyFile, long records) {
+            this.source = source;
+            this.keyFile = keyFile;
+            this.records = records;
+        }
+
+        public File getSource() {
+            return source;
+        }
+
+        public long getRecords() {
+            return records;
+        }
+
+        @Override
+        public void close() {
+            if (!keyFile.delete() && keyFile.exists()) {
+                logger.warn("Could not delete {}", keyFile);
+            }
+        }
+    }
+
+    public ExternalSortMergeJoin(CompiledMapping mapping) {
+        this(mapping, new File(System.getProperty(WORK_DIR_PROPERTY, System.getProperty("java.io.tmpdir"))),
+                Integer.getInteger(RUN_RECORDS_PROPERTY, DEFAULT_RUN_RECORDS));
+    }
+
+    public ExternalSortMergeJoin(CompiledMapping mapping, File workDirectory, int runRecords) {
+        this.mapping = mapping;
+        this.workDirectory = workDirectory;
+        this.runRecords = Math.max(1, runRecords);
+    }
+
+    /**
+     * Reads the array at arrayPointer in the file and writes its sorted join keys to disk.
+     * legacySide selects the old (legacy) or new (payer) paths of the mapping.
+     */
+    public SortedKeys sortKeys(ObjectMapper objectMapper, File file, String arrayPointer, boolean legacySide) throws IOException {
+        workDirectory.mkdirs();
+        List<File> runs = new ArrayList<>();
+        List<KeyEntry> run = new ArrayList<>();
+        long records = 0;
+        long skipped = 0;
+        try (StreamingArrayReader reader = StreamingArrayReader.open(objectMapper, file, arrayPointer)) {
+            JsonNode record;
+            while ((record = reader.next()) != null) {
+                records++;
+                String key = joinKey(record, legacySide);
+                if (key == null) {
+                    skipped++;
+                    continue;
+                }
+                run.add(new KeyEntry(key, reader.getElementStart(), (int) (reader.getElementEnd() - reader.getElementStart())));
+                if (run.size() == runRecords) {
+                    runs.add(writeRun(run));
+                    run.clear();
+                }
+            }
+            if (!run.isEmpty() || runs.isEmpty()) {
+                runs.add(writeRun(run));
+            }
+        } catch (IOException | RuntimeException e) {
+            deleteAll(runs);
+            throw e;
+        }
+
+        File keyFile = runs.size() == 1 ? runs.get(0) : mergeRuns(runs);
+        logger.info("Sorted join keys of {}: {} records ({} without a complete key) in {} runs",
+                file, records, skipped, runs.size());
+        return new SortedKeys(file, keyFile, records);
+    }
+
+    // Composite key over all mapped fields, or null when any of them is missing
+    private String joinKey(JsonNode record, boolean legacySide) {
+        StringBuilder key = new StringBuilder();
+        for (CompiledMapping.Entry entry : mapping) {
+            String value = ValueComparator.hashKey((legacySide ? entry.getOldPath() : entry.getNewPath()).resolve(record));
+            if (value == null) return null;
+            key.append(value).append(KEY_SEPARATOR);
+        }
+        return key.toString();
+    }
+
+    private File writeRun(List<KeyEntry> run) throws IOException {
+        Collections.sort(run, KEY_ORDER);
+        File runFile = File.createTempFile("join", ".keys", workDirectory);
+        runFile.deleteOnExit();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(runFile), IO_BUFFER_SIZE))) {
+            for (KeyEntry entry : run) {
+                write(out, entry);
+            }
+        }
+        return runFile;
+    }
+
+    // Merges all runs into one sorted key file in a single k-way pass
+    private File mergeRuns(List<File> runs) throws IOException {
+        File merged = File.createTempFile("join", ".keys", workDirectory);
+        merged.deleteOnExit();
+        List<RunReader> readers = new ArrayList<>();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(merged), IO_BUFFER_SIZE))) {
+            PriorityQueue<RunReader> queue = new PriorityQueue<>(runs.size(), (a, b) -> KEY_ORDER.compare(a.current, b.current));
+            for (File run : runs) {
+                RunReader reader = new RunReader(run);
+                readers.add(reader);
+                if (reader.advance()) queue.add(reader);
+            }
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                write(out, reader.current);
+                if (reader.advance()) queue.add(reader);
+            }
+        } catch (IOException | RuntimeException e) {
+            merged.delete();
+            throw e;
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+            deleteAll(runs);
+        }
+        return merged;
+    }
+
+    /**
+     * Merge-joins the two key files and passes every pair with equal keys to the handler,
+     * reading the two records from their source files. Returns the number of pairs.
+     */
+    public long match(ObjectMapper objectMapper, SortedKeys legacyKeys, SortedKeys payerKeys, HashJoinMatcher.MatchHandler handler) throws IOException {
+        long pairs = 0;
+        try (RunReader legacy = new RunReader(legacyKeys.keyFile);
+             RunReader payer = new RunReader(payerKeys.keyFile);
+             RandomAccessFile legacyData = new RandomAccessFile(legacyKeys.source, "r");
+             RandomAccessFile payerData = new RandomAccessFile(payerKeys.source, "r")) {
+
+            boolean legacyMore = legacy.advance();
+            boolean payerMore = payer.advance();
+            while (legacyMore && payerMore) {
+                int order = legacy.current.key.compareTo(payer.current.key);
+                if (order < 0) {
+                    legacyMore = legacy.advance();
+                } else if (order > 0) {
+                    payerMore = payer.advance();
+                } else {
+                    // Collect the payer records sharing this key, then pair each legacy record with them
+                    String key = payer.current.key;
+                    List<KeyEntry> group = new ArrayList<>();
+                    do {
+                        group.add(payer.current);
+                        payerMore = payer.advance();
+                    } while (payerMore && payer.current.key.equals(key));
+
+                    List<JsonNode> groupRecords = group.size() <= MAX_CACHED_GROUP ? new ArrayList<>() : null;
+                    if (groupRecords != null) {
+                        for (KeyEntry entry : group) {
+                            groupRecords.add(read(objectMapper, payerData, entry));
+                        }
+                    }
+                    do {
+                        JsonNode legacyRecord = read(objectMapper, legacyData, legacy.current);
+                        for (int i = 0; i < group.size(); i++) {
+                            handler.onMatch(legacyRecord, groupRecords != null ? groupRecords.get(i) : read(objectMapper, payerData, group.get(i)));
+                            pairs++;
+                        }
+                        legacyMore = legacy.advance();
+                    } while (legacyMore && legacy.current.key.equals(key));
+                }
+            }
+        }
+        return pairs;
+    }
+
+    private static JsonNode read(ObjectMapper objectMapper, RandomAccessFile data, KeyEntry entry) throws IOException {
+        byte[] bytes = new byte[entry.length];
+        data.seek(entry.offset);
+        data.readFully(bytes);
+        return objectMapper.readTree(bytes);
+    }
+
+    private static void write(DataOutputStream out, KeyEntry entry) throws IOException {
+        byte[] key = entry.key.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(key.length);
+        out.write(key);
+        out.writeLong(entry.offset);
+        out.writeInt(entry.length);
+    }
+
+    private static void deleteAll(List<File> files) {
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    /** Reads the entries of a key file in order. */
+    private static final class RunReader implements Closeable {
+        private final DataInputStream in;
+        private KeyEntry current;
+
+        RunReader(File file) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), IO_BUFFER_SIZE));
+        }
+
+        boolean advance() throws IOException {
+            int keyLength;
+            try {
+                keyLength = in.readInt();
+            } catch (EOFException e) {
+                current = null;
+                return false;
+            }
+            byte[] key = new byte[keyLength];
+            in.readFully(key);
+            current = new KeyEntry(new String(key, StandardCharsets.UTF_8), in.readLong(), in.readInt());
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
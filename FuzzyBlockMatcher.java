@@ -0,0 +1,256 @@
+package JSON;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Pairs legacy records with the most similar payer record when their mapped values differ
+ * only in formatting (case, punctuation, prefixes, date separators). Values are normalized
+ * to lower-case letters and digits and cut into trigrams. The payer records are indexed
+ * by (mapped field, trigram) blocks, and a legacy record is only scored against payer
+ * records that share at least MIN_SHARED_GRAMS trigrams with it in some field, so the work
+ * stays close to linear instead of scoring every n x m pair. Blocks larger than
+ * -Dfuzzy.max.block records are too common to tell records apart and are skipped.
+ *
+ * A field's similarity is the Dice coefficient of the two trigram sets, or 0.9 when one
+ * normalized value contains the other (an ID with and without its prefix). The record
+ * score is the mean over the fields present on both sides, so a field missing on either
+ * side neither counts against nor for a pair; a pair with fewer than -Dfuzzy.min.fields
+ * (default 2, at most the number of mapped fields) such fields is not scored. The best
+ * payer record scoring at least -Dfuzzy.threshold (default 0.8) is the match. Not thread-safe.
+ */
+public final class FuzzyBlockMatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(FuzzyBlockMatcher.class);
+
+    public static final String THRESHOLD_PROPERTY = "fuzzy.threshold";
+    public static final String MAX_BLOCK_PROPERTY = "fuzzy.max.block";
+    public static final String MIN_FIELDS_PROPERTY = "fuzzy.min.fields";
+    private static final double DEFAULT_THRESHOLD = 0.8;
+    private static final int DEFAULT_MAX_BLOCK = 1000;
+    private static final int DEFAULT_MIN_FIELDS = 2;
+    private static final int MIN_SHARED_GRAMS = 2;
+    private static final int MIN_CONTAINED_LENGTH = 4;
+    private static final double CONTAINED_SIMILARITY = 0.9;
+    private static final long[] NO_GRAMS = new long[0];
+
+    public interface ScoredMatchHandler {
+        void onMatch(JsonNode legacyRecord, JsonNode payerRecord, double score);
+    }
+
+    private final CompiledMapping.Entry[] entries;
+    private final double threshold;
+    private final int maxBlockSize;
+    private final int minFields;
+
+    // Payer side, filled by index()
+    private JsonNode payerRecords;
+    private String[][] payerValues;  // Normalized value per record and field, null if missing
+    private long[][][] payerGrams;   // Sorted trigram keys per record and field
+    private Map<Long, int[]> blocks; // Trigram key -> payer record positions
+    private int[] sharedGrams;       // Probe state: trigrams shared with each payer record
+    private int[] touched;
+    private long candidatesScored;
+    private long probes;
+
+    public FuzzyBlockMatcher(CompiledMapping mapping) {
+        this(mapping, Double.parseDouble(System.getProperty(THRESHOLD_PROPERTY, String.valueOf(DEFAULT_THRESHOLD))),
+                Integer.getInteger(MAX_BLOCK_PROPERTY, DEFAULT_MAX_BLOCK), Integer.getInteger(MIN_FIELDS_PROPERTY, DEFAULT_MIN_FIELDS));
+    }
+
+    /**
+     * @param minFields fields that must be present on both sides for a pair to be scored,
+     *                  capped at the number of mapped fields
+     */
+    public FuzzyBlockMatcher(CompiledMapping mapping, double threshold, int maxBlockSize, int minFields) {
+        List<CompiledMapping.Entry> mappingEntries = mapping.entries();
+        this.entries = mappingEntries.toArray(new CompiledMapping.Entry[mappingEntries.size()]);
+        this.threshold = threshold;
+        this.maxBlockSize = maxBlockSize;
+        this.minFields = Math.max(1, Math.min(minFields, entries.length));
+    }
+
+    /**
+     * Builds the blocking index over the payer records.
+     */
+    public void index(JsonNode payerRecords) {
+        int size = payerRecords.size();
+        this.payerRecords = payerRecords;
+        payerValues = new String[size][];
+        payerGrams = new long[size][][];
+        Map<Long, List<Integer>> positions = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            JsonNode record = payerRecords.get(i);
+            payerValues[i] = new String[entries.length];
+            payerGrams[i] = new long[entries.length][];
+            for (int field = 0; field < entries.length; field++) {
+                String value = normalize(entries[field].getNewPath().resolve(record));
+                payerValues[i][field] = value;
+                payerGrams[i][field] = grams(field, value);
+                for (long gram : payerGrams[i][field]) {
+                    positions.computeIfAbsent(gram, key -> new ArrayList<>()).add(i);
+                }
+            }
+        }
+
+        blocks = new HashMap<>(positions.size() * 2);
+        int skippedBlocks = 0;
+        for (Map.Entry<Long, List<Integer>> block : positions.entrySet()) {
+            if (block.getValue().size() > maxBlockSize) {
+                skippedBlocks++;
+                continue;
+            }
+            int[] members = new int[block.getValue().size()];
+            for (int i = 0; i < members.length; i++) {
+                members[i] = block.getValue().get(i);
+            }
+            blocks.put(block.getKey(), members);
+        }
+        sharedGrams = new int[size];
+        touched = new int[size];
+        logger.info("Fuzzy index: {} payer records in {} blocks ({} blocks over {} records skipped)",
+                size, blocks.size(), skippedBlocks, maxBlockSize);
+    }
+
+    /**
+     * Indexes the payer records and reports the best match of every legacy record. Returns
+     * the number of legacy records matched.
+     */
+    public int match(JsonNode legacyRecords, JsonNode payerRecords, ScoredMatchHandler handler) {
+        index(payerRecords);
+        int matched = 0;
+        for (JsonNode legacyRecord : legacyRecords) {
+            if (probe(legacyRecord, handler)) matched++;
+        }
+        logStatistics(legacyRecords.size());
+        return matched;
+    }
+
+    /**
+     * Reports the best-scoring payer record for the legacy record, if it reaches the
+     * threshold, and returns whether there was one. index() must have been called.
+     */
+    public boolean probe(JsonNode legacyRecord, ScoredMatchHandler handler) {
+        probes++;
+        String[] values = new String[entries.length];
+        long[][] grams = new long[entries.length][];
+        int touchedCount = 0;
+        for (int field = 0; field < entries.length; field++) {
+            values[field] = normalize(entries[field].getOldPath().resolve(legacyRecord));
+            grams[field] = grams(field, values[field]);
+            for (long gram : grams[field]) {
+                int[] block = blocks.get(gram);
+                if (block == null) continue;
+                for (int position : block) {
+                    if (sharedGrams[position]++ == 0) {
+                        touched[touchedCount++] = position;
+                    }
+                }
+            }
+        }
+
+        int best = -1;
+        double bestScore = threshold;
+        for (int i = 0; i < touchedCount; i++) {
+            int position = touched[i];
+            if (sharedGrams[position] >= MIN_SHARED_GRAMS) {
+                candidatesScored++;
+                double score = score(values, grams, position);
+                if (score > bestScore || (score == bestScore && (best < 0 || position < best))) {
+                    best = position;
+                    bestScore = score;
+                }
+            }
+            sharedGrams[position] = 0;
+        }
+
+        if (best < 0) return false;
+        handler.onMatch(legacyRecord, payerRecords.get(best), bestScore);
+        return true;
+    }
+
+    // Mean similarity over the fields both records have, or -1 when they share too few
+    private double score(String[] values, long[][] grams, int position) {
+        double total = 0;
+        int present = 0;
+        for (int field = 0; field < entries.length; field++) {
+            if (values[field] == null || payerValues[position][field] == null) continue;
+            total += similarity(values[field], grams[field], payerValues[position][field], payerGrams[position][field]);
+            present++;
+        }
+        return present < minFields ? -1 : total / present;
+    }
+
+    static double similarity(String a, long[] aGrams, String b, long[] bGrams) {
+        if (a == null || b == null) return 0;
+        if (a.equals(b)) return 1;
+        double dice = aGrams.length + bGrams.length == 0 ? 0 : 2.0 * intersection(aGrams, bGrams) / (aGrams.length + bGrams.length);
+        String shorter = a.length() <= b.length() ? a : b;
+        String longer = shorter == a ? b : a;
+        if (shorter.length() >= MIN_CONTAINED_LENGTH && longer.contains(shorter)) {
+            return Math.max(dice, CONTAINED_SIMILARITY);
+        }
+        return dice;
+    }
+
+    // Both arrays are sorted and distinct
+    private static int intersection(long[] a, long[] b) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                count++;
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    // Lower-case letters and digits only, or null for a missing or empty value
+    static String normalize(JsonNode node) {
+        if (node == null || !node.isValueNode() || node.isNull()) return null;
+        String text = node.asText();
+        StringBuilder normalized = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(Character.toLowerCase(c));
+            }
+        }
+        return normalized.length() == 0 ? null : normalized.toString();
+    }
+
+    // Trigrams of "^value$" packed with the field index as sorted distinct longs
+    static long[] grams(int field, String value) {
+        if (value == null) return NO_GRAMS;
+        String padded = "^" + value + "$";
+        long[] grams = new long[padded.length() - 2];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = ((long) field << 48) | ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2);
+        }
+        Arrays.sort(grams);
+        int distinct = 0;
+        for (int i = 0; i < grams.length; i++) {
+            if (i == 0 || grams[i] != grams[i - 1]) grams[distinct++] = grams[i];
+        }
+        return distinct == grams.length ? grams : Arrays.copyOf(grams, distinct);
+    }
+
+    public void logStatistics(long legacyRecords) {
+        long allPairs = legacyRecords * (payerRecords != null ? payerRecords.size() : 0);
+        logger.info("Fuzzy matching: {} probes scored {} candidate pairs ({} of all {} pairs)", probes, candidatesScored,
+                String.format("%.3f%%", allPairs == 0 ? 0.0 : 100.0 * candidatesScored / allPairs), allPairs);
+    }
+}
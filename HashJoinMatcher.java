@@ -0,0 +1,164 @@
+package JSON;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Pairs legacy records with payer records by building a hash index over the payer
+ * side once and probing it per legacy record, instead of comparing every pair.
+ * Matches are reported in the same order the nested loop would report them.
+ */
+public final class HashJoinMatcher {
+
+    public enum Rule {
+        /** A pair matches when any mapped field is equal (CompareJsonObjectsDynamic). */
+        ANY_FIELD,
+        /** A pair matches only when every mapped field is equal (Process1). */
+        ALL_FIELDS
+    }
+
+    public interface MatchHandler {
+        void onMatch(JsonNode legacyRecord, JsonNode payerRecord);
+    }
+
+    private final CompiledMapping mapping;
+    private final Rule rule;
+
+    // Payer side of the join, filled by index()
+    private JsonNode payerRecords;
+    private List<Map<String, List<Integer>>> fieldIndexes; // ANY_FIELD: one index per mapped field
+    private Map<List<String>, List<Integer>> compositeIndex; // ALL_FIELDS: one index on all fields
+    private BitSet candidates;
+
+    public HashJoinMatcher(CompiledMapping mapping, Rule rule) {
+        this.mapping = mapping;
+        this.rule = rule;
+    }
+
+    /**
+     * Returns a matcher that shares this matcher's index but has its own probe state,
+     * so several threads can probe one index concurrently (one shared matcher each).
+     */
+    public HashJoinMatcher shareIndex() {
+        if (payerRecords == null) {
+            throw new IllegalStateException("index() must be called before shareIndex()");
+        }
+        HashJoinMatcher shared = new HashJoinMatcher(mapping, rule);
+        shared.payerRecords = payerRecords;
+        shared.fieldIndexes = fieldIndexes;
+        shared.compositeIndex = compositeIndex;
+        shared.candidates = candidates != null ? new BitSet(payerRecords.size()) : null;
+        return shared;
+    }
+
+    /**
+     * Matches every legacy record against the payer records and returns the number of matched pairs.
+     */
+    public int match(JsonNode legacyRecords, JsonNode payerRecords, MatchHandler handler) {
+        index(payerRecords);
+        int matched = 0;
+        for (JsonNode legacyRecord : legacyRecords) {
+            matched += probe(legacyRecord, handler);
+        }
+        return matched;
+    }
+
+    /**
+     * Builds the hash index over the payer records. Must be called before probe().
+     */
+    public void index(JsonNode payerRecords) {
+        this.payerRecords = payerRecords;
+        if (rule == Rule.ANY_FIELD) {
+            // One index per mapped field: payer value -> positions of payer records holding it
+            fieldIndexes = new ArrayList<>(mapping.size());
+            for (CompiledMapping.Entry entry : mapping) {
+                Map<String, List<Integer>> index = new HashMap<>();
+                for (int i = 0; i < payerRecords.size(); i++) {
+                    String value = keyValue(payerRecords.get(i), entry.getNewPath());
+                    if (value != null) {
+                        index.computeIfAbsent(value, k -> new ArrayList<>(1)).add(i);
+                    }
+                }
+                fieldIndexes.add(index);
+            }
+            candidates = new BitSet(payerRecords.size());
+        } else {
+            compositeIndex = new HashMap<>();
+            for (int i = 0; i < payerRecords.size(); i++) {
+                List<String> key = compositeKey(payerRecords.get(i), false);
+                if (key != null) {
+                    compositeIndex.computeIfAbsent(key, k -> new ArrayList<>(1)).add(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Looks up one legacy record in the payer index and returns the number of matched pairs.
+     * Not thread-safe; use one matcher per thread.
+     */
+    public int probe(JsonNode legacyRecord, MatchHandler handler) {
+        if (payerRecords == null) {
+            throw new IllegalStateException("index() must be called before probe()");
+        }
+        return rule == Rule.ANY_FIELD ? probeAnyField(legacyRecord, handler) : probeAllFields(legacyRecord, handler);
+    }
+
+    private int probeAnyField(JsonNode legacyRecord, MatchHandler handler) {
+        List<CompiledMapping.Entry> entries = mapping.entries();
+        candidates.clear();
+        for (int e = 0; e < entries.size(); e++) {
+            String value = keyValue(legacyRecord, entries.get(e).getOldPath());
+            if (value == null) continue;
+            List<Integer> positions = fieldIndexes.get(e).get(value);
+            if (positions != null) {
+                for (int position : positions) {
+                    candidates.set(position);
+                }
+            }
+        }
+
+        // Walk the payer positions in ascending order, as the nested loop did
+        int matched = 0;
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            handler.onMatch(legacyRecord, payerRecords.get(i));
+            matched++;
+        }
+        return matched;
+    }
+
+    private int probeAllFields(JsonNode legacyRecord, MatchHandler handler) {
+        List<String> key = compositeKey(legacyRecord, true);
+        List<Integer> positions = key != null ? compositeIndex.get(key) : null;
+        if (positions == null) return 0;
+        for (int position : positions) {
+            handler.onMatch(legacyRecord, payerRecords.get(position));
+        }
+        return positions.size();
+    }
+
+    /**
+     * Builds the composite key of a record, or null when any field is missing,
+     * since a missing value can never compare equal.
+     */
+    private List<String> compositeKey(JsonNode record, boolean legacySide) {
+        String[] values = new String[mapping.size()];
+        int i = 0;
+        for (CompiledMapping.Entry entry : mapping) {
+            String value = keyValue(record, legacySide ? entry.getOldPath() : entry.getNewPath());
+            if (value == null) return null;
+            values[i++] = value;
+        }
+        return Arrays.asList(values);
+    }
+
+    private static String keyValue(JsonNode record, CompiledPath path) {
+        return ValueComparator.hashKey(path.resolve(record));
+    }
+}
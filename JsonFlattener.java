@@ -0,0 +1,175 @@
+package JSON;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Flattens a JSON tree (the Map/List model ObjectMapper.readValue produces, or a JsonNode
+ * tree, whose leaves are then value nodes) into one (pointer, key, value) tuple per leaf
+ * in a single pass. Only the current path and one
+ * iterator per open container are kept, so flattening is linear in the size of the tree
+ * and nothing is re-walked from the root per leaf.
+ */
+public final class JsonFlattener {
+
+    public interface LeafSink {
+        void leaf(String pointer, String key, Object value) throws IOException;
+    }
+
+    private JsonFlattener() {
+    }
+
+    /**
+     * Sends every leaf of the tree to the sink, in document order.
+     */
+    public static void flatten(Object json, String basePath, LeafSink sink) throws IOException {
+        Cursor cursor = new Cursor(json, basePath);
+        while (cursor.next()) {
+            sink.leaf(cursor.pointer(), cursor.key(), cursor.value());
+        }
+    }
+
+    /**
+     * Formats a leaf the way JsonToExcelMapping.getKeyValueFromPointer does: "key": "value".
+     */
+    public static String keyValue(String key, Object value) {
+        return "\"" + key + "\": \"" + value + "\"";
+    }
+
+    /**
+     * Pull-style walk over the leaves, for callers that consume two trees side by side.
+     */
+    public static final class Cursor {
+        private final Deque<Frame> stack = new ArrayDeque<>();
+        private final StringBuilder path;
+        private Object root;
+        private boolean started;
+        private String pointer;
+        private String key;
+        private Object value;
+
+        public Cursor(Object json, String basePath) {
+            this.root = json;
+            this.path = new StringBuilder(basePath);
+        }
+
+        /**
+         * Advances to the next leaf; returns false once the tree is exhausted.
+         */
+        public boolean next() {
+            if (!started) {
+                started = true;
+                Object json = root;
+                root = null;
+                if (!isContainer(json)) {
+                    // A scalar document is its own single leaf
+                    pointer = path.toString();
+                    key = "";
+                    value = json;
+                    return true;
+                }
+                push(json);
+            }
+
+            while (!stack.isEmpty()) {
+                Frame frame = stack.peek();
+                if (!frame.children.hasNext()) {
+                    stack.pop();
+                    continue;
+                }
+
+                path.setLength(frame.pathLength);
+                String childKey;
+                Object child;
+                if (frame.list) {
+                    childKey = Integer.toString(frame.index++);
+                    child = frame.children.next();
+                    path.append('/').append(childKey);
+                } else {
+                    Map.Entry<?, ?> entry = (Map.Entry<?, ?>) frame.children.next();
+                    childKey = String.valueOf(entry.getKey());
+                    child = entry.getValue();
+                    path.append('/');
+                    appendEscaped(path, childKey);
+                }
+
+                if (isContainer(child)) {
+                    push(child);
+                    continue;
+                }
+                pointer = path.toString();
+                key = childKey;
+                value = child;
+                return true;
+            }
+            pointer = null;
+            key = null;
+            value = null;
+            return false;
+        }
+
+        public String pointer() {
+            return pointer;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        public Object value() {
+            return value;
+        }
+
+        public String keyValue() {
+            return JsonFlattener.keyValue(key, value);
+        }
+
+        private void push(Object container) {
+            stack.push(new Frame(container, path.length()));
+        }
+    }
+
+    // One open Map or List: its remaining children and the path length that leads to it
+    private static final class Frame {
+        private final Iterator<?> children;
+        private final boolean list;
+        private final int pathLength;
+        private int index;
+
+        Frame(Object container, int pathLength) {
+            if (container instanceof JsonNode) {
+                JsonNode node = (JsonNode) container;
+                this.list = node.isArray();
+                this.children = list ? node.elements() : node.fields();
+            } else {
+                this.list = container instanceof List;
+                this.children = list ? ((List<?>) container).iterator() : ((Map<?, ?>) container).entrySet().iterator();
+            }
+            this.pathLength = pathLength;
+        }
+    }
+
+    private static boolean isContainer(Object json) {
+        return json instanceof Map || json instanceof List || (json instanceof JsonNode && ((JsonNode) json).isContainerNode());
+    }
+
+    // JSON pointer escaping: "~" -> "~0", "/" -> "~1"
+    private static void appendEscaped(StringBuilder path, String key) {
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c == '~') {
+                path.append("~0");
+            } else if (c == '/') {
+                path.append("~1");
+            } else {
+                path.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package JSON;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reads JSON Lines files (one JSON document per line) in byte-range chunks. The file is
+ * cut into chunks of roughly -Djsonl.chunk.mb megabytes, each boundary moved forward to
+ * the next newline so no record is split, and each chunk can then be parsed on its own
+ * thread. Blank lines are skipped.
+ */
+public final class JsonLinesReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(JsonLinesReader.class);
+
+    public static final String CHUNK_SIZE_PROPERTY = "jsonl.chunk.mb";
+    private static final int DEFAULT_CHUNK_MB = 16;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * One byte range of a JSONL file, starting at a line start and ending after a newline
+     * (or at the end of the file).
+     */
+    public static final class Chunk {
+        private final File file;
+        private final long start;
+        private final long end;
+
+        Chunk(File file, long start, long end) {
+            this.file = file;
+            this.start = start;
+            this.end = end;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        @Override
+        public String toString() {
+            return file.getName() + "[" + start + ".." + end + ")";
+        }
+    }
+
+    private JsonLinesReader() {
+    }
+
+    public static boolean isJsonLines(File file) {
+        String name = file.getName().toLowerCase();
+        return name.endsWith(".jsonl") || name.endsWith(".ndjson");
+    }
+
+    /**
+     * Splits the file into chunks of about -Djsonl.chunk.mb megabytes at newline boundaries.
+     */
+    public static List<Chunk> split(File file) throws IOException {
+        return split(file, Integer.getInteger(CHUNK_SIZE_PROPERTY, DEFAULT_CHUNK_MB) * 1024L * 1024L);
+    }
+
+    public static List<Chunk> split(File file, long chunkBytes) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+            long start = 0;
+            while (start < size) {
+                long end = start + chunkBytes >= size ? size : nextLineStart(channel, start + chunkBytes, size);
+                chunks.add(new Chunk(file, start, end));
+                start = end;
+            }
+        }
+        logger.debug("Split {} into {} chunks", file, chunks.size());
+        return chunks;
+    }
+
+    // Returns the position just after the first newline at or after position, or size if there is none
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) break;
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Parses every line of the chunk, in order, and returns the number of documents read.
+     */
+    public static long forEachLine(ObjectMapper objectMapper, Chunk chunk, StreamingArrayReader.ElementHandler handler) throws IOException {
+        long count = 0;
+        try (RandomAccessFile raf = new RandomAccessFile(chunk.file, "r"); FileChannel channel = raf.getChannel()) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            byte[] line = new byte[1024];
+            int lineLength = 0;
+            long position = chunk.start;
+            while (position < chunk.end) {
+                buffer.clear();
+                buffer.limit((int) Math.min(READ_BUFFER_SIZE, chunk.end - position));
+                int read = channel.read(buffer, position);
+                if (read <= 0) break;
+                position += read;
+                for (int i = 0; i < read; i++) {
+                    byte b = buffer.get(i);
+                    if (b == '\n') {
+                        count += parseLine(objectMapper, line, lineLength, handler);
+                        lineLength = 0;
+                        continue;
+                    }
+                    if (lineLength == line.length) {
+                        byte[] larger = new byte[line.length * 2];
+                        System.arraycopy(line, 0, larger, 0, lineLength);
+                        line = larger;
+                    }
+                    line[lineLength++] = b;
+                }
+            }
+            // The last line of the file may have no newline
+            count += parseLine(objectMapper, line, lineLength, handler);
+        }
+        return count;
+    }
+
+    private static int parseLine(ObjectMapper objectMapper, byte[] line, int length, StreamingArrayReader.ElementHandler handler) throws IOException {
+        int start = 0;
+        while (start < length && isWhitespace(line[start])) start++;
+        while (length > start && isWhitespace(line[length - 1])) length--; // Also drops the '\r' of CRLF files
+        if (start == length) {
+            return 0;
+        }
+        handler.onElement(objectMapper.readTree(line, start, length - start));
+        return 1;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+}
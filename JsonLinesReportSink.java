@@ -0,0 +1,70 @@
+package JSON;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Writes report rows as JSON Lines: one object per row with the headers as field names,
+ * e.g. {"Old Path":"/a","New Path":"/b",...}. Easy to feed to log tooling line by line.
+ */
+public final class JsonLinesReportSink implements ReportSink {
+
+    private static final Logger logger = LoggerFactory.getLogger(JsonLinesReportSink.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final String[] headers;
+    private final JsonGenerator generator;
+    private long totalRows;
+
+    public JsonLinesReportSink(File file, String... headers) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) parent.mkdirs();
+        this.file = file;
+        this.headers = headers.clone();
+        this.generator = new JsonFactory().createGenerator(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+        this.generator.setRootValueSeparator(null); // Rows are separated by the newline alone
+    }
+
+    @Override
+    public void writeRow(String... values) throws IOException {
+        generator.writeStartObject();
+        for (int i = 0; i < headers.length; i++) {
+            generator.writeFieldName(headers[i]);
+            String value = i < values.length ? values[i] : null;
+            if (value != null) {
+                generator.writeString(value);
+            } else {
+                generator.writeNull();
+            }
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+        totalRows++;
+    }
+
+    @Override
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    @Override
+    public String getPath() {
+        return file.getPath();
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close(); // Also closes the stream
+        logger.info("JSONL report written: {} ({} rows)", file, totalRows);
+    }
+}
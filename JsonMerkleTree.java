@@ -0,0 +1,215 @@
+package JSON;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * A JSON document with a 64-bit content hash on every subtree, computed while the
+ * document is parsed. Two documents are diffed by comparing hashes top-down and
+ * descending only where they differ, so identical subtrees are skipped without being
+ * walked and the diff costs roughly the size of the change, not of the document.
+ * Object hashes ignore field order; array hashes do not.
+ */
+public final class JsonMerkleTree {
+
+    public interface DiffHandler {
+        /**
+         * Called for each differing leaf, or for a whole subtree present on one side only.
+         * The value of the absent side is null.
+         */
+        void onDifference(String pointer, JsonNode oldValue, JsonNode newValue) throws IOException;
+    }
+
+    private static final long PRIME = 0x100000001B3L;
+    private static final long OBJECT_SEED = 0x6F626A6563740000L;
+    private static final long ARRAY_SEED = 0x6172726179000000L;
+
+    private final JsonNode node;
+    private final long hash;
+    private final Map<String, JsonMerkleTree> fields; // Objects only
+    private final List<JsonMerkleTree> elements; // Arrays only
+
+    private JsonMerkleTree(JsonNode node, long hash, Map<String, JsonMerkleTree> fields, List<JsonMerkleTree> elements) {
+        this.node = node;
+        this.hash = hash;
+        this.fields = fields;
+        this.elements = elements;
+    }
+
+    public static JsonMerkleTree read(ObjectMapper objectMapper, File file) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(file)) {
+            if (parser.nextToken() == null) {
+                throw new IOException("No JSON content in " + file);
+            }
+            return read(parser, objectMapper.getNodeFactory());
+        }
+    }
+
+    // Builds the node and its hash from the parser's current token, children first
+    private static JsonMerkleTree read(JsonParser parser, JsonNodeFactory factory) throws IOException {
+        JsonToken token = parser.currentToken();
+        switch (token) {
+            case START_OBJECT: {
+                ObjectNode object = factory.objectNode();
+                Map<String, JsonMerkleTree> fields = new LinkedHashMap<>();
+                long sum = 0;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    parser.nextToken();
+                    JsonMerkleTree child = read(parser, factory);
+                    object.set(name, child.node);
+                    JsonMerkleTree replaced = fields.put(name, child);
+                    if (replaced != null) sum -= fieldHash(name, replaced.hash); // Duplicate key: the last one wins
+                    sum += fieldHash(name, child.hash);
+                }
+                // Summing the field hashes makes the result independent of field order
+                return new JsonMerkleTree(object, mix(OBJECT_SEED ^ sum ^ fields.size()), fields, null);
+            }
+            case START_ARRAY: {
+                ArrayNode array = factory.arrayNode();
+                List<JsonMerkleTree> elements = new ArrayList<>();
+                long h = ARRAY_SEED;
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    JsonMerkleTree child = read(parser, factory);
+                    array.add(child.node);
+                    elements.add(child);
+                    h = h * PRIME + child.hash;
+                }
+                return new JsonMerkleTree(array, mix(h ^ elements.size()), null, elements);
+            }
+            case VALUE_STRING:
+                return leaf(factory.textNode(parser.getText()), token, parser.getText());
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                // Hash the number as written, so 1 and 1.0 differ just as their JsonNodes do
+                return leaf(numberNode(parser, factory), token, parser.getText());
+            case VALUE_TRUE:
+                return leaf(factory.booleanNode(true), token, "");
+            case VALUE_FALSE:
+                return leaf(factory.booleanNode(false), token, "");
+            case VALUE_NULL:
+                return leaf(factory.nullNode(), token, "");
+            default:
+                throw new IOException("Unexpected token " + token + " at " + parser.getCurrentLocation());
+        }
+    }
+
+    private static JsonMerkleTree leaf(JsonNode node, JsonToken token, String text) {
+        return new JsonMerkleTree(node, mix(text(text) * PRIME + token.ordinal()), null, null);
+    }
+
+    private static JsonNode numberNode(JsonParser parser, JsonNodeFactory factory) throws IOException {
+        switch (parser.getNumberType()) {
+            case INT:
+                return factory.numberNode(parser.getIntValue());
+            case LONG:
+                return factory.numberNode(parser.getLongValue());
+            case BIG_INTEGER:
+                return factory.numberNode(parser.getBigIntegerValue());
+            case BIG_DECIMAL:
+                return factory.numberNode(parser.getDecimalValue());
+            default:
+                return factory.numberNode(parser.getDoubleValue());
+        }
+    }
+
+    public JsonNode getNode() {
+        return node;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Reports every difference between the two trees and returns the number of
+     * differing subtrees reached; subtrees with equal hashes are not visited.
+     */
+    public static int diff(JsonMerkleTree oldTree, JsonMerkleTree newTree, DiffHandler handler) throws IOException {
+        return diff(new StringBuilder(), oldTree, newTree, handler);
+    }
+
+    private static int diff(StringBuilder pointer, JsonMerkleTree oldTree, JsonMerkleTree newTree, DiffHandler handler) throws IOException {
+        if (oldTree == null || newTree == null) {
+            // Added or removed: report the whole subtree once
+            handler.onDifference(pointer.toString(), oldTree != null ? oldTree.node : null, newTree != null ? newTree.node : null);
+            return 1;
+        }
+        if (oldTree.hash == newTree.hash) {
+            return 0;
+        }
+
+        int differences = 0;
+        int length = pointer.length();
+        if (oldTree.fields != null && newTree.fields != null) {
+            for (Map.Entry<String, JsonMerkleTree> field : oldTree.fields.entrySet()) {
+                appendField(pointer, field.getKey());
+                differences += diff(pointer, field.getValue(), newTree.fields.get(field.getKey()), handler);
+                pointer.setLength(length);
+            }
+            for (Map.Entry<String, JsonMerkleTree> field : newTree.fields.entrySet()) {
+                if (oldTree.fields.containsKey(field.getKey())) continue;
+                appendField(pointer, field.getKey());
+                differences += diff(pointer, null, field.getValue(), handler);
+                pointer.setLength(length);
+            }
+        } else if (oldTree.elements != null && newTree.elements != null) {
+            int size = Math.max(oldTree.elements.size(), newTree.elements.size());
+            for (int i = 0; i < size; i++) {
+                pointer.append('/').append(i);
+                differences += diff(pointer, element(oldTree.elements, i), element(newTree.elements, i), handler);
+                pointer.setLength(length);
+            }
+        } else {
+            // Changed leaf, or the value changed type
+            handler.onDifference(pointer.toString(), oldTree.node, newTree.node);
+            differences = 1;
+        }
+        return differences;
+    }
+
+    private static JsonMerkleTree element(List<JsonMerkleTree> elements, int index) {
+        return index < elements.size() ? elements.get(index) : null;
+    }
+
+    // JSON pointer escaping: "~" -> "~0", "/" -> "~1"
+    private static void appendField(StringBuilder pointer, String name) {
+        pointer.append('/').append(name.replace("~", "~0").replace("/", "~1"));
+    }
+
+    private static long fieldHash(String name, long childHash) {
+        return mix(text(name) * PRIME ^ childHash);
+    }
+
+    // FNV-1a over the UTF-16 chars
+    private static long text(String text) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            h ^= text.charAt(i);
+            h *= PRIME;
+        }
+        return h;
+    }
+
+    // MurmurHash3 64-bit finalizer
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
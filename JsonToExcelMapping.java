@@ -1,36 +1,30 @@
 package JSON;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.*;
 
 public class JsonToExcelMapping {
 
+    private static final Logger logger = LoggerFactory.getLogger(JsonToExcelMapping.class);
+
     // Method to generate JSON pointers
     public static List<String> generateJsonPointers(Object json, String path) {
+        // One pass over the tree into a single list, instead of a list per level merged with addAll
         List<String> pointers = new ArrayList<>();
-        if (json instanceof Map) {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> map = (Map<String, Object>) json;
-            for (Map.Entry<String, Object> entry : map.entrySet()) {
-                String key = entry.getKey().replace("~", "~0").replace("/", "~1");
-                String newPath = path + "/" + key;
-                pointers.addAll(generateJsonPointers(entry.getValue(), newPath));
-            }
-        } else if (json instanceof List) {
-            @SuppressWarnings("unchecked")
-            List<Object> list = (List<Object>) json;
-            for (int i = 0; i < list.size(); i++) {
-                String newPath = path + "/" + i;
-                pointers.addAll(generateJsonPointers(list.get(i), newPath));
-            }
-        } else {
-            pointers.add(path); // Leaf node
+        JsonFlattener.Cursor cursor = new JsonFlattener.Cursor(json, path);
+        while (cursor.next()) {
+            pointers.add(cursor.pointer());
         }
         return pointers;
     }
@@ -57,53 +51,59 @@ public class JsonToExcelMapping {
 
     // Method to create Excel file
     public static void createExcel(Map<String, Object> response1, Map<String, Object> response2, String filePath) throws IOException {
-        Workbook workbook = new XSSFWorkbook();
-        Sheet sheet = workbook.createSheet("JSON Mapping");
-
-        // Header Row
-        Row headerRow = sheet.createRow(0);
-        headerRow.createCell(0).setCellValue("Response 1 (Key:Value)");
-        headerRow.createCell(1).setCellValue("Response 1 JSON Pointer");
-        headerRow.createCell(2).setCellValue("Response 2 (Key:Value)");
-        headerRow.createCell(3).setCellValue("Response 2 JSON Pointer");
-
-        // Generate JSON pointers and values for Response 1 and Response 2
-        List<String> response1Pointers = generateJsonPointers(response1, "");
-        List<String> response2Pointers = generateJsonPointers(response2, "");
-
-        // Write data to rows
-        int rowIndex = 1; // Start from the second row as the first is the header
-        for (int i = 0; i < Math.max(response1Pointers.size(), response2Pointers.size()); i++) {
-            Row row = sheet.createRow(rowIndex++);
-
-            // Response 1
-            if (i < response1Pointers.size()) {
-                String pointer = response1Pointers.get(i);
-                String keyValue = getKeyValueFromPointer(response1, pointer); // Get Key:Value
-                row.createCell(0).setCellValue(keyValue); // Column A: Response 1 Key:Value
-                row.createCell(1).setCellValue(pointer); // Column B: Response 1 Pointer
-            }
-
-            // Response 2
-            if (i < response2Pointers.size()) {
-                String pointer = response2Pointers.get(i);
-                String keyValue = getKeyValueFromPointer(response2, pointer); // Get Key:Value
-                row.createCell(2).setCellValue(keyValue); // Column C: Response 2 Key:Value
-                row.createCell(3).setCellValue(pointer); // Column D: Response 2 Pointer
+        // Rows are streamed to disk and column widths are estimated as they are written
+        try (StreamingReportWriter report = new StreamingReportWriter(filePath, "JSON Mapping",
+                "Response 1 (Key:Value)", "Response 1 JSON Pointer", "Response 2 (Key:Value)", "Response 2 JSON Pointer")) {
+
+            // Walk both responses leaf by leaf, side by side, without listing the pointers first
+            JsonFlattener.Cursor response1Leaves = new JsonFlattener.Cursor(response1, "");
+            JsonFlattener.Cursor response2Leaves = new JsonFlattener.Cursor(response2, "");
+            boolean hasResponse1 = response1Leaves.next();
+            boolean hasResponse2 = response2Leaves.next();
+
+            // Write data to rows
+            String[] values = new String[4];
+            while (hasResponse1 || hasResponse2) {
+                Arrays.fill(values, null);
+
+                // Response 1
+                if (hasResponse1) {
+                    values[0] = response1Leaves.keyValue(); // Column A: Response 1 Key:Value
+                    values[1] = response1Leaves.pointer(); // Column B: Response 1 Pointer
+                    hasResponse1 = response1Leaves.next();
+                }
+
+                // Response 2
+                if (hasResponse2) {
+                    values[2] = response2Leaves.keyValue(); // Column C: Response 2 Key:Value
+                    values[3] = response2Leaves.pointer(); // Column D: Response 2 Pointer
+                    hasResponse2 = response2Leaves.next();
+                }
+
+                report.writeRow(values);
             }
         }
+        System.out.println("Excel file successfully created: " + filePath);
+    }
 
-        // Auto-size columns for better readability
-        for (int i = 0; i < 4; i++) {
-            sheet.autoSizeColumn(i);
-        }
-
-        // Write the workbook to a file
-        try (FileOutputStream fos = new FileOutputStream(filePath)) {
-            workbook.write(fos);
+    // Method to write one {"pointer", "key", "value"} line per leaf, for tools that read JSONL
+    public static void writeJsonLines(Object json, String filePath) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        // ObjectMapper.writeValue would flush the file after every leaf
+        ObjectWriter valueWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(new File(filePath), JsonEncoding.UTF8)) {
+            generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+            JsonFlattener.flatten(json, "", (pointer, key, value) -> {
+                generator.writeStartObject();
+                generator.writeStringField("pointer", pointer);
+                generator.writeStringField("key", key);
+                generator.writeFieldName("value");
+                valueWriter.writeValue(generator, value);
+                generator.writeEndObject();
+            });
+            generator.writeRaw('\n');
         }
-        workbook.close();
-        System.out.println("Excel file successfully created: " + filePath);
+        logger.info("JSON lines file successfully created: {}", filePath);
     }
 
     public static void main(String[] args) throws IOException {
@@ -0,0 +1,280 @@
+package JSON;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+/**
+ * Loads the old-path to new-path mapping from the first sheet of a mapping workbook.
+ * The sheet is read with the XSSF event model (SAX) instead of building the whole
+ * XSSFWorkbook. The parsed mapping is also saved as a small binary snapshot keyed
+ * by the workbook's content hash, so an unchanged mapping is loaded on later runs
+ * without touching the spreadsheet at all.
+ */
+public final class MappingReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappingReader.class);
+
+    private static final String CACHE_DIR_PROPERTY = "mapping.cache.dir";
+    private static final String DEFAULT_CACHE_DIR = "target/mapping-cache";
+    private static final int SNAPSHOT_MAGIC = 0x4D415031; // "MAP1"
+
+    private MappingReader() {
+    }
+
+    public static CompiledMapping read(String filePath) throws IOException {
+        return CompiledMapping.compile(readPaths(filePath));
+    }
+
+    /**
+     * Returns the raw old-path to new-path pairs, from the snapshot when one exists for this content.
+     */
+    public static Map<String, String> readPaths(String filePath) throws IOException {
+        Path mappingFile = Paths.get(filePath);
+        String hash = ContentHash.of(mappingFile);
+        Path snapshot = Paths.get(System.getProperty(CACHE_DIR_PROPERTY, DEFAULT_CACHE_DIR), hash + ".mapping");
+
+        if (Files.isRegularFile(snapshot)) {
+            try {
+                Map<String, String> mapping = readSnapshot(snapshot);
+                logger.debug("Mapping {} loaded from snapshot {}", filePath, snapshot);
+                return mapping;
+            } catch (IOException e) {
+                logger.warn("Ignoring unreadable mapping snapshot {}: {}", snapshot, e.getMessage());
+            }
+        }
+
+        Map<String, String> mapping = SheetReader.readSheet(mappingFile.toFile());
+        try {
+            writeSnapshot(snapshot, mapping);
+        } catch (IOException e) {
+            logger.warn("Could not write mapping snapshot {}: {}", snapshot, e.getMessage());
+        }
+        return mapping;
+    }
+
+    /**
+     * Returns, for every row after the header row of the sheet at sheetIndex, the cells of
+     * the columns with the given header names (null where a cell is empty). Rows without
+     * any of these cells are left out. Not snapshotted.
+     */
+    public static List<String[]> readColumns(String filePath, int sheetIndex, String... headers) throws IOException {
+        return SheetReader.readColumns(new File(filePath), sheetIndex, headers);
+    }
+
+    /**
+     * Reads the workbook itself. Kept apart so that POI is only loaded when there is no
+     * snapshot to read instead.
+     */
+    private static final class SheetReader {
+
+        static Map<String, String> readSheet(File file) throws IOException {
+            Map<String, String> mapping = new HashMap<>();
+            if (!parse(file, 0, new MappingRowHandler(mapping))) {
+                logger.warn("Mapping file {} has no sheets", file);
+            }
+            return mapping;
+        }
+
+        static List<String[]> readColumns(File file, int sheetIndex, String[] headers) throws IOException {
+            ColumnRowHandler handler = new ColumnRowHandler(headers);
+            if (!parse(file, sheetIndex, handler)) {
+                throw new IOException("Mapping file " + file + " has no sheet " + sheetIndex);
+            }
+            for (int i = 0; i < headers.length; i++) {
+                if (handler.columns[i] < 0) {
+                    throw new IOException("Mapping file " + file + " has no column '" + headers[i] + "' in sheet " + sheetIndex);
+                }
+            }
+            return handler.rows;
+        }
+
+        // Streams the sheet at sheetIndex to the handler; false if there is no such sheet
+        private static boolean parse(File file, int sheetIndex, SheetContentsHandler handler) throws IOException {
+            try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+                XSSFReader reader = new XSSFReader(pkg);
+                ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+                XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+                for (int i = 0; i < sheetIndex && sheets.hasNext(); i++) {
+                    sheets.next().close();
+                }
+                if (!sheets.hasNext()) {
+                    return false;
+                }
+                try (InputStream sheet = sheets.next()) {
+                    XMLReader parser = XMLHelper.newXMLReader();
+                    parser.setContentHandler(new XSSFSheetXMLHandler(reader.getStylesTable(), null, strings,
+                            handler, new DataFormatter(), false));
+                    parser.parse(new InputSource(sheet));
+                }
+            } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+                throw new IOException("Failed to read mapping file " + file, e);
+            }
+            return true;
+        }
+
+        /**
+         * Finds the header columns in the first row and collects their cells from the rows after it.
+         */
+        private static final class ColumnRowHandler implements SheetContentsHandler {
+            private final String[] headers;
+            private final int[] columns;
+            private final List<String[]> rows = new ArrayList<>();
+            private boolean isFirstRow = true;
+            private String[] row;
+
+            ColumnRowHandler(String[] headers) {
+                this.headers = headers;
+                this.columns = new int[headers.length];
+                Arrays.fill(columns, -1);
+            }
+
+            @Override
+            public void startRow(int rowNum) {
+                row = new String[headers.length];
+            }
+
+            @Override
+            public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+                if (cellReference == null) return;
+                int column = new CellReference(cellReference).getCol();
+                for (int i = 0; i < headers.length; i++) {
+                    if (isFirstRow && columns[i] < 0 && headers[i].equals(formattedValue)) {
+                        columns[i] = column;
+                    } else if (!isFirstRow && columns[i] == column) {
+                        row[i] = formattedValue;
+                    }
+                }
+            }
+
+            @Override
+            public void endRow(int rowNum) {
+                if (isFirstRow) {
+                    isFirstRow = false;
+                    return;
+                }
+                for (String value : row) {
+                    if (value != null) {
+                        rows.add(row);
+                        return;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Collects the first two cells of every row after the header row.
+         */
+        private static final class MappingRowHandler implements SheetContentsHandler {
+            private final Map<String, String> mapping;
+            private boolean isFirstRow = true; // Flag to skip the header row
+            private String oldPath;
+            private String newPath;
+
+            MappingRowHandler(Map<String, String> mapping) {
+                this.mapping = mapping;
+            }
+
+            @Override
+            public void startRow(int rowNum) {
+                oldPath = null;
+                newPath = null;
+            }
+
+            @Override
+            public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+                if (cellReference == null) return;
+                int column = new CellReference(cellReference).getCol();
+                if (column == 0) {
+                    oldPath = formattedValue;
+                } else if (column == 1) {
+                    newPath = formattedValue;
+                }
+            }
+
+            @Override
+            public void endRow(int rowNum) {
+                if (isFirstRow) {
+                    isFirstRow = false; // Skip the first row
+                    return;
+                }
+                if (oldPath == null || newPath == null) {
+                    logger.warn("Skipping row {} due to missing cells", rowNum);
+                    return;
+                }
+                mapping.put(oldPath, newPath);
+                logger.debug("Mapping added: {} -> {}", oldPath, newPath);
+            }
+        }
+    }
+
+    private static Map<String, String> readSnapshot(Path snapshot) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a mapping snapshot");
+            }
+            int size = in.readInt();
+            Map<String, String> mapping = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                mapping.put(in.readUTF(), in.readUTF());
+            }
+            return mapping;
+        }
+    }
+
+    private static void writeSnapshot(Path snapshot, Map<String, String> mapping) throws IOException {
+        Files.createDirectories(snapshot.getParent());
+        // Write to a temporary file first so a concurrent run never sees a half-written snapshot
+        Path temp = Files.createTempFile(snapshot.getParent(), "mapping", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(mapping.size());
+                for (Map.Entry<String, String> entry : mapping.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeUTF(entry.getValue());
+                }
+            }
+            try {
+                Files.move(temp, snapshot, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
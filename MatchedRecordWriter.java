@@ -0,0 +1,297 @@
+package JSON;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Writes matched-record JSON documents on a background thread so the compare thread only
+ * queues them. The queue is bounded (-Dmatched.queue.size, default 1024), so a slow disk
+ * holds the compare thread back instead of filling the heap, and the writer drains it in
+ * batches. -Dmatched.output selects the output:
+ * <ul>
+ * <li>files (default): one pretty-printed file per document, at its path under the directory;
+ * every document still opens and closes its own file, so only the queueing is batched</li>
+ * <li>jsonl: one &lt;name&gt;.jsonl per run, a {"path": ..., "content": ...} line per document</li>
+ * <li>zip: one &lt;name&gt;.zip per run, a pretty-printed entry per document</li>
+ * </ul>
+ * The jsonl and zip containers are flushed once per batch, not per document.
+ * A zip cannot hold an entry twice, so a repeated path gets a numeric suffix there,
+ * while files are overwritten and a JSONL reader keeps the last line for a path.
+ */
+public final class MatchedRecordWriter implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatchedRecordWriter.class);
+
+    public static final String FORMAT_PROPERTY = "matched.output";
+    public static final String QUEUE_SIZE_PROPERTY = "matched.queue.size";
+    private static final int DEFAULT_QUEUE_SIZE = 1024;
+    private static final int BATCH_SIZE = 256;
+    private static final int BUFFER_SIZE = 256 * 1024;
+    // How often a full queue is rechecked for a writer thread that has died
+    private static final long WORKER_CHECK_MILLIS = 200;
+
+    public enum Format {
+        FILES, JSONL, ZIP
+    }
+
+    private static final class Document {
+        private final String path;
+        private final JsonNode content;
+
+        Document(String path, JsonNode content) {
+            this.path = path;
+            this.content = content;
+        }
+    }
+
+    private static final Document END = new Document(null, null);
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter prettyWriter;
+    private final ObjectWriter lineWriter;
+    private final File directory;
+    private final File container;
+    private final Format format;
+    private final BlockingQueue<Document> queue;
+    private final Thread worker;
+
+    // Used only by the worker thread
+    private OutputStream containerStream;
+    private JsonGenerator lineGenerator;
+    private final Map<String, Integer> zipEntries = new HashMap<>();
+    private long written;
+    private long failed;
+
+    private volatile boolean closed;
+    // Why the writer thread stopped before END, if it did
+    private volatile Throwable workerFailure;
+
+    /**
+     * Creates a writer configured from -Dmatched.output and -Dmatched.queue.size. In the
+     * jsonl and zip formats the run's container is directory/name.jsonl or name.zip.
+     */
+    public MatchedRecordWriter(ObjectMapper objectMapper, File directory, String name) {
+        this(objectMapper, directory, name, Format.valueOf(System.getProperty(FORMAT_PROPERTY, "files").toUpperCase(Locale.ROOT)),
+                Integer.getInteger(QUEUE_SIZE_PROPERTY, DEFAULT_QUEUE_SIZE));
+    }
+
+    /**
+     * Creates a writer with a fixed format, for callers that read the output back.
+     */
+    public MatchedRecordWriter(ObjectMapper objectMapper, File directory, String name, Format format) {
+        this(objectMapper, directory, name, format, Integer.getInteger(QUEUE_SIZE_PROPERTY, DEFAULT_QUEUE_SIZE));
+    }
+
+    public MatchedRecordWriter(ObjectMapper objectMapper, File directory, String name, Format format, int queueSize) {
+        this.objectMapper = objectMapper;
+        this.prettyWriter = objectMapper.writerWithDefaultPrettyPrinter();
+        // ObjectMapper flushes the generator after every value by default
+        this.lineWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.directory = directory;
+        this.format = format;
+        this.container = format == Format.FILES ? null : new File(directory, name + "." + format.name().toLowerCase(Locale.ROOT));
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        this.worker = new Thread(this::drain, "matched-record-writer");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Queues a document to be written at path (relative to the directory), waiting while
+     * the queue is full. The document must not be modified afterwards.
+     *
+     * @throws IOException if the writer thread has stopped, so the document would never be written
+     */
+    public void write(String path, JsonNode content) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Writer is closed");
+        }
+        try {
+            enqueue(new Document(path, content));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while queueing " + path);
+        }
+    }
+
+    // Waits for queue space like put(), but gives up once the writer thread is gone
+    private void enqueue(Document document) throws IOException, InterruptedException {
+        do {
+            if (!worker.isAlive()) {
+                throw new IOException("Matched-record writer thread has stopped", workerFailure);
+            }
+        } while (!queue.offer(document, WORKER_CHECK_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    private void drain() {
+        try {
+            drainQueue();
+        } catch (Throwable e) {
+            workerFailure = e;
+            logger.error("Matched-record writer thread failed", e);
+            throw e;
+        }
+    }
+
+    private void drainQueue() {
+        List<Document> batch = new ArrayList<>(BATCH_SIZE);
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                for (Document document : batch) {
+                    if (document == END) {
+                        finishContainer();
+                        return;
+                    }
+                    writeDocument(document);
+                }
+                flushContainer();
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeDocument(Document document) {
+        try {
+            switch (format) {
+                case FILES:
+                    File file = new File(directory, document.path);
+                    File parent = file.getParentFile();
+                    if (parent != null) parent.mkdirs();
+                    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+                        prettyWriter.writeValue(out, document.content);
+                    }
+                    logger.debug("File created: {}", file);
+                    break;
+                case JSONL:
+                    JsonGenerator generator = lineGenerator();
+                    generator.writeStartObject();
+                    generator.writeStringField("path", document.path);
+                    generator.writeFieldName("content");
+                    lineWriter.writeValue(generator, document.content);
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                    break;
+                case ZIP:
+                    ZipOutputStream zip = zipStream();
+                    zip.putNextEntry(new ZipEntry(uniqueEntryName(document.path)));
+                    zip.write(prettyWriter.writeValueAsBytes(document.content));
+                    zip.closeEntry();
+                    break;
+            }
+            written++;
+        } catch (IOException | RuntimeException e) {
+            failed++;
+            logger.error("Failed to write {}: {}", document.path, e.getMessage());
+        }
+    }
+
+    private JsonGenerator lineGenerator() throws IOException {
+        if (lineGenerator == null) {
+            lineGenerator = objectMapper.getFactory().createGenerator(openContainer());
+            lineGenerator.setRootValueSeparator(null); // Documents are separated by the newline alone
+        }
+        return lineGenerator;
+    }
+
+    private ZipOutputStream zipStream() throws IOException {
+        if (containerStream == null) {
+            containerStream = new ZipOutputStream(openContainer());
+        }
+        return (ZipOutputStream) containerStream;
+    }
+
+    private OutputStream openContainer() throws IOException {
+        directory.mkdirs();
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(container), BUFFER_SIZE);
+        if (format == Format.JSONL) {
+            containerStream = out;
+        }
+        return out;
+    }
+
+    // Legacy_P1.json, Legacy_P1_2.json, Legacy_P1_3.json, ...
+    private String uniqueEntryName(String path) {
+        String name = path.replace('\\', '/');
+        Integer count = zipEntries.merge(name, 1, Integer::sum);
+        if (count == 1) return name;
+        int dot = name.lastIndexOf('.');
+        return dot > name.lastIndexOf('/') ? name.substring(0, dot) + "_" + count + name.substring(dot) : name + "_" + count;
+    }
+
+    private void flushContainer() {
+        try {
+            if (lineGenerator != null) {
+                lineGenerator.flush();
+            } else if (containerStream != null) {
+                containerStream.flush();
+            }
+        } catch (IOException e) {
+            logger.error("Failed to flush {}: {}", container, e.getMessage());
+        }
+    }
+
+    private void finishContainer() {
+        try {
+            if (lineGenerator != null) {
+                lineGenerator.close(); // Also closes the stream
+            } else if (containerStream != null) {
+                containerStream.close();
+            }
+        } catch (IOException e) {
+            logger.error("Failed to close {}: {}", container, e.getMessage());
+        }
+    }
+
+    /**
+     * Writes everything still queued, closes the container and waits for the writer thread.
+     *
+     * @throws IOException if the writer thread died, leaving documents unwritten
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            enqueue(END);
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while finishing matched-record output");
+        }
+        if (written + failed > 0) {
+            logger.info("Matched records written: {} documents{} ({} failed)", written,
+                    container != null ? " to " + container : "", failed);
+        }
+        if (workerFailure != null) {
+            throw new IOException("Matched-record writer thread failed after " + written + " documents", workerFailure);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package JSON;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Keeps parsed JSON trees in memory so a file compared against many others is read and
+ * parsed once instead of once per pair. Trees are evicted least-recently-used first when
+ * their estimated size exceeds the budget (-Ddocument.cache.mb, by default a quarter of
+ * the maximum heap). With prefetch enabled, the next file can be parsed on a background
+ * thread while the current pair is being compared.
+ */
+public final class ParsedDocumentCache implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParsedDocumentCache.class);
+
+    public static final String BUDGET_PROPERTY = "document.cache.mb";
+    public static final String PREFETCH_PROPERTY = "document.prefetch";
+
+    // A Jackson tree takes several times the size of its JSON text
+    private static final int TREE_BYTES_PER_FILE_BYTE = 6;
+
+    private final ObjectMapper objectMapper;
+    private final long budgetBytes;
+    private final LinkedHashMap<String, Entry> documents = new LinkedHashMap<>(16, 0.75f, true); // Access order
+    private final Map<String, Future<JsonNode>> pending = new HashMap<>();
+    private final ExecutorService prefetcher;
+    private long usedBytes;
+    private int hits;
+    private int misses;
+
+    private static final class Entry {
+        private final JsonNode document;
+        private final long weight;
+
+        Entry(JsonNode document, long weight) {
+            this.document = document;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Creates a cache configured from -Ddocument.cache.mb and -Ddocument.prefetch.
+     */
+    public ParsedDocumentCache(ObjectMapper objectMapper) {
+        this(objectMapper, Long.getLong(BUDGET_PROPERTY, Runtime.getRuntime().maxMemory() / 4 / (1024 * 1024)) * 1024 * 1024,
+                Boolean.getBoolean(PREFETCH_PROPERTY));
+    }
+
+    public ParsedDocumentCache(ObjectMapper objectMapper, long budgetBytes, boolean prefetch) {
+        this.objectMapper = objectMapper;
+        this.budgetBytes = budgetBytes;
+        this.prefetcher = prefetch ? Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "document-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    /**
+     * Returns the parsed tree of the file, parsing it only if it is not cached (or the file
+     * changed since). The returned tree is shared and must not be modified.
+     */
+    public JsonNode get(File file) throws IOException {
+        String key = key(file);
+        Future<JsonNode> prefetched;
+        synchronized (this) {
+            Entry entry = documents.get(key);
+            if (entry != null) {
+                hits++;
+                return entry.document;
+            }
+            misses++;
+            prefetched = pending.remove(key);
+        }
+
+        JsonNode document = prefetched != null ? await(prefetched, file) : objectMapper.readTree(file);
+        store(key, file, document);
+        return document;
+    }
+
+    /**
+     * Starts parsing the file in the background if prefetch is enabled and it is not cached yet.
+     */
+    public synchronized void prefetch(File file) {
+        if (prefetcher == null) return;
+        String key = key(file);
+        if (documents.containsKey(key) || pending.containsKey(key)) return;
+        pending.put(key, prefetcher.submit(() -> objectMapper.readTree(file)));
+    }
+
+    private JsonNode await(Future<JsonNode> prefetched, File file) throws IOException {
+        try {
+            return prefetched.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing " + file, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IOException("Failed to parse " + file, e.getCause());
+        }
+    }
+
+    private synchronized void store(String key, File file, JsonNode document) {
+        long weight = file.length() * TREE_BYTES_PER_FILE_BYTE;
+        if (weight > budgetBytes) {
+            logger.debug("{} is larger than the document cache budget, not cached", file);
+            return;
+        }
+        Entry previous = documents.put(key, new Entry(document, weight));
+        if (previous != null) usedBytes -= previous.weight;
+        usedBytes += weight;
+
+        // Evict least recently used trees until the budget is met
+        Iterator<Entry> eldest = documents.values().iterator();
+        while (usedBytes > budgetBytes && eldest.hasNext()) {
+            usedBytes -= eldest.next().weight;
+            eldest.remove();
+        }
+    }
+
+    // The modification time and length make a rewritten file a different key
+    private static String key(File file) {
+        return file.getAbsolutePath() + '|' + file.lastModified() + '|' + file.length();
+    }
+
+    public synchronized void logStatistics() {
+        logger.info("Document cache: {} hits, {} parses, {} documents ({} MB of {} MB) held",
+                hits, misses, documents.size(), usedBytes / (1024 * 1024), budgetBytes / (1024 * 1024));
+    }
+
+    @Override
+    public void close() {
+        if (prefetcher != null) {
+            prefetcher.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package JSON;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for one pipeline phase, recorded with e.g.
+ * -XX:StartFlightRecording=filename=run.jfr. Only RunMetrics touches this class, and only
+ * after checking that the JVM has the jdk.jfr API, so the tools still run on JVMs without it.
+ */
+@Name("JsonExcel.Phase")
+@Label("Comparison Phase")
+@Category("JsonExcel")
+@Description("Time, records, bytes and heap use of one phase of a comparison run")
+@StackTrace(false)
+final class PhaseEvent extends Event {
+
+    @Label("Run")
+    String run;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Invocations")
+    long invocations;
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+
+    @Label("Records")
+    long records;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Heap Used")
+    @DataAmount
+    long heapUsed;
+
+    /** Starts timing a phase; the returned event is passed back to end(). */
+    static Object begin(String run, String phase) {
+        PhaseEvent event = new PhaseEvent();
+        event.run = run;
+        event.phase = phase;
+        event.begin();
+        return event;
+    }
+
+    static void end(Object started, long invocations, long elapsed, long records, long bytes, long heapUsed) {
+        PhaseEvent event = (PhaseEvent) started;
+        event.end();
+        if (event.shouldCommit()) {
+            event.invocations = invocations;
+            event.elapsed = elapsed;
+            event.records = records;
+            event.bytes = bytes;
+            event.heapUsed = heapUsed;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,422 @@
+package JSON;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Native port of the Python extract-and-compare script (the "excel" script that was run
+ * through Jython), with the same results:
+ * <ol>
+ * <li>extract: for every payer pointer in the first mapping sheet (column
+ * "claimIdentifiers/patientAccountNumber"), the digits of the payer value are searched for
+ * in both responses, and the first object holding a value with those digits is saved from
+ * each as Legacy_&lt;digits&gt;.json and Payer_&lt;digits&gt;.json</li>
+ * <li>compare: every Legacy_/Payer_ pair in the directory is compared on the pointer pairs
+ * of the second mapping sheet (columns "legacyjsonpointerpath" and "payerjsonpointerpath"),
+ * one report row per pair and pointer</li>
+ * </ol>
+ * extractNumeric, searchValue and compareValues follow the Python functions, including
+ * Python's str() of numbers, booleans and None and its == between ints, floats and bools.
+ * Pointers are compiled once, values are looked up in a ValuePointerIndex built once per
+ * response, and the report goes through ReportSink (-Dreport.format).
+ * Saved files are pretty-printed by Jackson rather than with json.dump's indent of 4.
+ */
+public final class RecordExtractionPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecordExtractionPipeline.class);
+
+    public static final String MATCHED = "MATCHED";
+    public static final String PARTIAL_MATCH = "PARTIAL_MATCH";
+    public static final String NOT_MATCHED = "NOT_MATCHED";
+
+    private static final String PAYER_POINTER_COLUMN = "claimIdentifiers/patientAccountNumber";
+    private static final String LEGACY_PATH_COLUMN = "legacyjsonpointerpath";
+    private static final String PAYER_PATH_COLUMN = "payerjsonpointerpath";
+
+    // Phase timings of this run, written to target/metrics when it ends
+    private static final RunMetrics metrics = new RunMetrics("RecordExtractionPipeline");
+
+    private RecordExtractionPipeline() {
+    }
+
+    public static void main(String[] args) {
+        // Same defaults as the script; any of them can be given in this order
+        String mappingFile = args.length > 0 ? args[0] : "mapping.xlsx";
+        String legacyFilePath = args.length > 1 ? args[1] : "response1.json";
+        String payerFilePath = args.length > 2 ? args[2] : "response2.json";
+        String extractedDir = args.length > 3 ? args[3] : "target/filteredRecord";
+        String outputExcel = args.length > 4 ? args[4] : "comparison_results.xlsx";
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        try {
+            List<String[]> payerPointers;
+            List<String[]> pointerPairs;
+            try (RunMetrics.Phase phase = metrics.start("readMapping")) {
+                payerPointers = MappingReader.readColumns(mappingFile, 0, PAYER_POINTER_COLUMN);
+                pointerPairs = MappingReader.readColumns(mappingFile, 1, LEGACY_PATH_COLUMN, PAYER_PATH_COLUMN);
+                phase.records(payerPointers.size() + pointerPairs.size()).bytes(new File(mappingFile).length());
+            }
+
+            try (RunMetrics.Phase phase = metrics.start("extract")) {
+                JsonNode legacyResponse = objectMapper.readTree(new File(legacyFilePath));
+                JsonNode payerResponse = objectMapper.readTree(new File(payerFilePath));
+                // Always separate files: the compare stage reads them back from the directory
+                try (MatchedRecordWriter output = new MatchedRecordWriter(objectMapper, new File(extractedDir), "extracted",
+                        MatchedRecordWriter.Format.FILES)) {
+                    List<String> pointers = new ArrayList<>(payerPointers.size());
+                    for (String[] row : payerPointers) {
+                        pointers.add(row[0]);
+                    }
+                    phase.records(extractAndSaveRecords(pointers, legacyResponse, payerResponse, output))
+                            .bytes(new File(legacyFilePath).length() + new File(payerFilePath).length());
+                }
+            }
+
+            try (RunMetrics.Phase phase = metrics.start("compare")) {
+                String reportPath;
+                try (ReportSink report = ReportSink.open(outputExcel, "Sheet1",
+                        "ClaimsRecord", LEGACY_PATH_COLUMN, PAYER_PATH_COLUMN, "legacyvalue", "payervalue", "validation")) {
+                    phase.records(compareJsonData(objectMapper, pointerPairs, new File(extractedDir), report));
+                    reportPath = report.getPath();
+                }
+                logger.info("Comparison results saved to {}", reportPath);
+            }
+        } catch (Exception e) {
+            logger.error("An error occurred in the extract-and-compare pipeline", e);
+        }
+        metrics.finish();
+    }
+
+    /**
+     * For each payer pointer, takes the digits of the payer value it points to and saves the
+     * first legacy and payer objects holding a value with the same digits, when both exist.
+     * A pointer that cannot be resolved is logged and skipped. Returns the pairs saved.
+     * Both responses are indexed by digits once, instead of being scanned for every pointer.
+     */
+    public static int extractAndSaveRecords(List<String> payerPointers, JsonNode legacyResponse, JsonNode payerResponse,
+                                            MatchedRecordWriter output) throws IOException {
+        ValuePointerIndex valueIndex = ValuePointerIndex.byDigits();
+        int legacySource = valueIndex.add("legacy", legacyResponse);
+        int payerSource = valueIndex.add("payer", payerResponse);
+        valueIndex.logStatistics();
+
+        int saved = 0;
+        for (int index = 0; index < payerPointers.size(); index++) {
+            JsonNode extractedValue;
+            try {
+                extractedValue = resolve(payerResponse, compile(payerPointers.get(index)));
+            } catch (IllegalArgumentException e) {
+                logger.error("Error processing row {}: {}", index, e.getMessage());
+                continue;
+            }
+            String numericValue = extractNumeric(extractedValue);
+            if (numericValue.isEmpty()) continue;
+
+            JsonNode legacyRecord = firstObjectHolding(valueIndex, legacySource, legacyResponse, numericValue);
+            JsonNode payerRecord = firstObjectHolding(valueIndex, payerSource, payerResponse, numericValue);
+            if (legacyRecord != null && payerRecord != null) {
+                output.write("Legacy_" + numericValue + ".json", legacyRecord);
+                output.write("Payer_" + numericValue + ".json", payerRecord);
+                saved++;
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * Compares every Legacy_&lt;n&gt;.json / Payer_&lt;n&gt;.json pair in the directory on the
+     * pointer pairs and writes a row per pair and pointer: n, both pointers, both values and
+     * the compareValues() status. Pairs are taken in file name order. Returns the rows written.
+     */
+    public static long compareJsonData(ObjectMapper objectMapper, List<String[]> pointerPairs, File extractedDir,
+                                       ReportSink report) throws IOException {
+        List<String[]> paths = new ArrayList<>();
+        List<JsonPointer[]> pointers = new ArrayList<>();
+        for (String[] pair : pointerPairs) {
+            try {
+                pointers.add(new JsonPointer[] {compile(pair[0]), compile(pair[1])});
+                paths.add(pair);
+            } catch (IllegalArgumentException e) {
+                logger.error("Skipping mapping row {} -> {}: {}", pair[0], pair[1], e.getMessage());
+            }
+        }
+
+        File[] files = extractedDir.listFiles((dir, name) -> name.startsWith("Legacy_") && name.endsWith(".json"));
+        if (files == null) {
+            logger.warn("Directory {} does not exist or is not accessible.", extractedDir);
+            return 0;
+        }
+        Arrays.sort(files, Comparator.comparing(File::getName));
+
+        long rows = 0;
+        for (File file : files) {
+            String numericValue = recordKey(file.getName());
+            File legacyFile = new File(extractedDir, "Legacy_" + numericValue + ".json");
+            File payerFile = new File(extractedDir, "Payer_" + numericValue + ".json");
+            if (!legacyFile.isFile() || !payerFile.isFile()) continue;
+
+            JsonNode legacyJson = objectMapper.readTree(legacyFile);
+            JsonNode payerJson = objectMapper.readTree(payerFile);
+            for (int i = 0; i < pointers.size(); i++) {
+                JsonNode legacyValue = resolve(legacyJson, pointers.get(i)[0]);
+                JsonNode payerValue = resolve(payerJson, pointers.get(i)[1]);
+                report.writeRow(numericValue, paths.get(i)[0], paths.get(i)[1], cellText(legacyValue), cellText(payerValue),
+                        compareValues(legacyValue, payerValue));
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    // "Legacy_123.json" -> "123", as file.split("_")[1].split(".")[0]
+    private static String recordKey(String fileName) {
+        int start = fileName.indexOf('_') + 1;
+        int end = fileName.indexOf('_', start);
+        String part = end < 0 ? fileName.substring(start) : fileName.substring(start, end);
+        int dot = part.indexOf('.');
+        return dot < 0 ? part : part.substring(0, dot);
+    }
+
+    private static JsonPointer compile(String pointer) {
+        if (pointer == null) throw new IllegalArgumentException("No pointer");
+        return JsonPointer.compile(pointer);
+    }
+
+    // The node at the pointer, or null (Python None) when it is missing or JSON null
+    private static JsonNode resolve(JsonNode document, JsonPointer pointer) {
+        JsonNode node = document.at(pointer);
+        return isNone(node) ? null : node;
+    }
+
+    private static boolean isNone(JsonNode node) {
+        return node == null || node.isMissingNode() || node.isNull();
+    }
+
+    private static String cellText(JsonNode node) {
+        if (isNone(node)) return null;
+        return node.isValueNode() ? node.asText() : node.toString();
+    }
+
+    /**
+     * The digits of Python's str(value), in order; "" for null or missing.
+     */
+    public static String extractNumeric(JsonNode value) {
+        String text = pythonStr(value);
+        StringBuilder digits = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isDigit(c)) digits.append(c);
+        }
+        return digits.toString();
+    }
+
+    /**
+     * Returns the first object, in document order, with a scalar field whose extractNumeric()
+     * equals searchValue, or null. Scalars directly inside arrays are not considered.
+     */
+    public static JsonNode searchValue(JsonNode json, String searchValue) {
+        if (json.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = json.fields();
+            while (fields.hasNext()) {
+                JsonNode value = fields.next().getValue();
+                if (value.isContainerNode()) {
+                    JsonNode result = searchValue(value, searchValue);
+                    if (result != null) return result;
+                } else if (extractNumeric(value).equals(searchValue)) {
+                    return json;
+                }
+            }
+        } else if (json.isArray()) {
+            for (JsonNode item : json) {
+                JsonNode result = searchValue(item, searchValue);
+                if (result != null) return result;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * searchValue() answered from the index: the object owning the first occurrence of the
+     * digits in the document that is an object field rather than an array element.
+     */
+    static JsonNode firstObjectHolding(ValuePointerIndex index, int sourceId, JsonNode document, String digits) {
+        for (ValuePointerIndex.Occurrence occurrence : index.lookup(digits)) {
+            if (occurrence.getSourceId() != sourceId) continue;
+            String pointer = occurrence.getPointer();
+            int slash = pointer.lastIndexOf('/'); // Keys have "/" escaped, so this is the parent
+            if (slash < 0) continue; // A scalar document
+            JsonNode parent = document.at(pointer.substring(0, slash));
+            if (parent.isObject()) return parent;
+        }
+        return null;
+    }
+
+    /**
+     * MATCHED if the values are equal as Python values, PARTIAL_MATCH if both are truthy and
+     * one's str() contains the other's, ignoring case, NOT_MATCHED otherwise. Null stands
+     * for a missing value (None), so two missing values match.
+     */
+    public static String compareValues(JsonNode value1, JsonNode value2) {
+        if (pythonEquals(value1, value2)) {
+            return MATCHED;
+        }
+        if (truthy(value1) && truthy(value2)) {
+            String text1 = pythonStr(value1).toLowerCase(Locale.ROOT);
+            String text2 = pythonStr(value2).toLowerCase(Locale.ROOT);
+            if (text1.contains(text2) || text2.contains(text1)) {
+                return PARTIAL_MATCH;
+            }
+        }
+        return NOT_MATCHED;
+    }
+
+    // Python ==: numbers and booleans compare by value (True == 1 == 1.0), containers deeply
+    static boolean pythonEquals(JsonNode a, JsonNode b) {
+        if (isNone(a) || isNone(b)) return isNone(a) && isNone(b);
+        if ((a.isNumber() || a.isBoolean()) && (b.isNumber() || b.isBoolean())) {
+            return numericValue(a).compareTo(numericValue(b)) == 0;
+        }
+        if (a.isTextual() && b.isTextual()) return a.textValue().equals(b.textValue());
+        if (a.isArray() && b.isArray()) {
+            if (a.size() != b.size()) return false;
+            for (int i = 0; i < a.size(); i++) {
+                if (!pythonEquals(a.get(i), b.get(i))) return false;
+            }
+            return true;
+        }
+        if (a.isObject() && b.isObject()) {
+            if (a.size() != b.size()) return false;
+            Iterator<Map.Entry<String, JsonNode>> fields = a.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                JsonNode other = b.get(field.getKey());
+                if (other == null || !pythonEquals(field.getValue(), other)) return false;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    // Exact value, so an int and a float are equal only when they are mathematically equal
+    private static BigDecimal numericValue(JsonNode node) {
+        if (node.isBoolean()) return node.booleanValue() ? BigDecimal.ONE : BigDecimal.ZERO;
+        if (node.isIntegralNumber()) return new BigDecimal(node.bigIntegerValue());
+        return node.isBigDecimal() ? node.decimalValue() : new BigDecimal(node.doubleValue());
+    }
+
+    static boolean truthy(JsonNode node) {
+        if (isNone(node)) return false;
+        if (node.isBoolean()) return node.booleanValue();
+        if (node.isNumber()) return node.isIntegralNumber() ? node.bigIntegerValue().signum() != 0 : node.doubleValue() != 0;
+        if (node.isTextual()) return !node.textValue().isEmpty();
+        return node.size() > 0;
+    }
+
+    // Python's str() of the value json.load would have produced
+    static String pythonStr(JsonNode node) {
+        if (node != null && node.isTextual()) return node.textValue();
+        StringBuilder text = new StringBuilder();
+        appendRepr(text, node);
+        return text.toString();
+    }
+
+    private static void appendRepr(StringBuilder text, JsonNode node) {
+        if (isNone(node)) {
+            text.append("None");
+        } else if (node.isBoolean()) {
+            text.append(node.booleanValue() ? "True" : "False");
+        } else if (node.isIntegralNumber()) {
+            text.append(node.bigIntegerValue());
+        } else if (node.isNumber()) {
+            text.append(floatRepr(node.doubleValue()));
+        } else if (node.isTextual()) {
+            stringRepr(text, node.textValue());
+        } else if (node.isArray()) {
+            text.append('[');
+            for (int i = 0; i < node.size(); i++) {
+                if (i > 0) text.append(", ");
+                appendRepr(text, node.get(i));
+            }
+            text.append(']');
+        } else {
+            text.append('{');
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                stringRepr(text, field.getKey());
+                text.append(": ");
+                appendRepr(text, field.getValue());
+                if (fields.hasNext()) text.append(", ");
+            }
+            text.append('}');
+        }
+    }
+
+    // 'text', or "text" when it holds a single quote but no double quote
+    private static void stringRepr(StringBuilder text, String value) {
+        char quote = value.indexOf('\'') >= 0 && value.indexOf('"') < 0 ? '"' : '\'';
+        text.append(quote);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == quote || c == '\\') {
+                text.append('\\').append(c);
+            } else if (c == '\n') {
+                text.append("\\n");
+            } else if (c == '\r') {
+                text.append("\\r");
+            } else if (c == '\t') {
+                text.append("\\t");
+            } else {
+                text.append(c);
+            }
+        }
+        text.append(quote);
+    }
+
+    // repr(float): shortest digits, positional for exponents -4..15, else d.ddde+XX
+    static String floatRepr(double value) {
+        if (Double.isNaN(value)) return "nan";
+        if (Double.isInfinite(value)) return value > 0 ? "inf" : "-inf";
+        if (value == 0) return 1 / value < 0 ? "-0.0" : "0.0";
+
+        BigDecimal decimal = new BigDecimal(Double.toString(Math.abs(value))).stripTrailingZeros();
+        String digits = decimal.unscaledValue().toString();
+        int exponent = digits.length() - 1 - decimal.scale();
+        StringBuilder text = new StringBuilder(value < 0 ? "-" : "");
+        if (exponent >= -4 && exponent < 16) {
+            if (exponent < 0) {
+                text.append("0.");
+                for (int i = -1; i > exponent; i--) text.append('0');
+                text.append(digits);
+            } else if (digits.length() > exponent + 1) {
+                text.append(digits, 0, exponent + 1).append('.').append(digits, exponent + 1, digits.length());
+            } else {
+                text.append(digits);
+                for (int i = digits.length(); i <= exponent; i++) text.append('0');
+                text.append(".0");
+            }
+        } else {
+            text.append(digits.charAt(0));
+            if (digits.length() > 1) text.append('.').append(digits, 1, digits.length());
+            text.append('e').append(exponent < 0 ? '-' : '+');
+            if (Math.abs(exponent) < 10) text.append('0');
+            text.append(Math.abs(exponent));
+        }
+        return text.toString();
+    }
+}
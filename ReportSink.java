@@ -0,0 +1,57 @@
+package JSON;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Destination of report rows. The format is chosen per run with -Dreport.format:
+ * <ul>
+ * <li>excel (default): StreamingReportWriter, an .xlsx workbook</li>
+ * <li>csv: CsvReportSink, RFC 4180 CSV in UTF-8</li>
+ * <li>jsonl: JsonLinesReportSink, one JSON object per row keyed by the headers</li>
+ * </ul>
+ * StreamingReportWriter is only referenced when excel is selected, so CSV and JSONL runs
+ * never load or initialize Apache POI.
+ */
+public interface ReportSink extends Closeable {
+
+    String FORMAT_PROPERTY = "report.format";
+
+    /**
+     * Appends one row. Null values are written as empty cells (JSON null in JSONL).
+     */
+    void writeRow(String... values) throws IOException;
+
+    long getTotalRows();
+
+    /** The file written, or the first of them when the report is split. */
+    String getPath();
+
+    /**
+     * Opens a sink in the -Dreport.format format. excelPath is the .xlsx path the report
+     * would have; the other formats write next to it with their own extension.
+     */
+    static ReportSink open(String excelPath, String sheetName, String... headers) throws IOException {
+        String format = System.getProperty(FORMAT_PROPERTY, "excel").toLowerCase(Locale.ROOT);
+        switch (format) {
+            case "excel":
+            case "xlsx":
+                return new StreamingReportWriter(excelPath, sheetName, headers);
+            case "csv":
+                return new CsvReportSink(new File(withExtension(excelPath, ".csv")), headers);
+            case "jsonl":
+                return new JsonLinesReportSink(new File(withExtension(excelPath, ".jsonl")), headers);
+            default:
+                throw new IllegalArgumentException("Unknown " + FORMAT_PROPERTY + ": " + format + " (expected excel, csv or jsonl)");
+        }
+    }
+
+    // Data/output.xlsx -> Data/output.csv
+    static String withExtension(String path, String extension) {
+        int dot = path.lastIndexOf('.');
+        int separator = Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\'));
+        return (dot > separator ? path.substring(0, dot) : path) + extension;
+    }
+}
@@ -0,0 +1,147 @@
+package JSON;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Persistent store of comparison results keyed by the content hashes of their inputs
+ * (the compared files plus the mapping). A re-run looks each pair up first and only
+ * recomputes pairs whose files or mapping changed since a result was stored. Entries
+ * are JSON files named by key under -Dresult.cache.dir, one folder per process; set
+ * -Dresult.cache=false to always recompute. Safe to use from several threads.
+ *
+ * Every key also covers FORMAT_VERSION and the settings that change results
+ * (compare.tolerance, compare.canonical, array.keys), so a run with other settings or
+ * after a change to the matching rules never replays results computed under other rules.
+ */
+public final class ResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResultCache.class);
+
+    private static final String CACHE_DIR_PROPERTY = "result.cache.dir";
+    private static final String DEFAULT_CACHE_DIR = "target/result-cache";
+    private static final String ENABLED_PROPERTY = "result.cache";
+
+    // Bump when a change makes the same inputs give different results or stored entries
+    private static final int FORMAT_VERSION = 3;
+    private static final String[] RESULT_PROPERTIES = {"compare.tolerance", "compare.canonical", "array.keys"};
+    private static final String SETTINGS = settings();
+
+    private final Path directory;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Map<String, String> fileHashes = new ConcurrentHashMap<>();
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    public ResultCache(String namespace, ObjectMapper objectMapper) {
+        this.directory = Paths.get(System.getProperty(CACHE_DIR_PROPERTY, DEFAULT_CACHE_DIR), namespace);
+        this.objectMapper = objectMapper;
+        this.enabled = !"false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY));
+    }
+
+    /**
+     * Content hash of a file, computed once per run however many pairs the file is part of.
+     */
+    public String hashOf(File file) throws IOException {
+        String path = file.getAbsolutePath();
+        String hash = fileHashes.get(path);
+        if (hash == null) {
+            hash = ContentHash.of(file.toPath());
+            fileHashes.put(path, hash);
+        }
+        return hash;
+    }
+
+    // Version and result-affecting settings of this run, part of every key
+    private static String settings() {
+        StringBuilder settings = new StringBuilder("v").append(FORMAT_VERSION);
+        for (String property : RESULT_PROPERTIES) {
+            settings.append('|').append(property).append('=').append(System.getProperty(property, ""));
+        }
+        return settings.toString();
+    }
+
+    /**
+     * Combines the content hashes of all inputs of one result, the format version and the
+     * result-affecting settings into its cache key.
+     */
+    public static String key(String... hashes) {
+        MessageDigest digest = ContentHash.newDigest();
+        digest.update(SETTINGS.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '|');
+        for (String hash : hashes) {
+            digest.update(hash.getBytes(StandardCharsets.US_ASCII));
+            digest.update((byte) '|');
+        }
+        return ContentHash.toHex(digest.digest());
+    }
+
+    /**
+     * Returns the stored result, or null when there is none (or it cannot be read).
+     */
+    public JsonNode get(String key) {
+        if (!enabled) return null;
+        Path entry = entryPath(key);
+        if (Files.isRegularFile(entry)) {
+            try {
+                JsonNode result = objectMapper.readTree(entry.toFile());
+                hits.incrementAndGet();
+                return result;
+            } catch (IOException e) {
+                logger.warn("Ignoring unreadable cached result {}: {}", entry, e.getMessage());
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(String key, JsonNode result) {
+        if (!enabled) return;
+        Path entry = entryPath(key);
+        try {
+            Files.createDirectories(entry.getParent());
+            // Write to a temporary file first so a concurrent run never reads a half-written entry
+            Path temp = Files.createTempFile(entry.getParent(), "result", ".tmp");
+            try {
+                objectMapper.writeValue(temp.toFile(), result);
+                try {
+                    Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not store cached result {}: {}", entry, e.getMessage());
+        }
+    }
+
+    // Two-character fan-out keeps any one folder small
+    private Path entryPath(String key) {
+        return directory.resolve(key.substring(0, 2)).resolve(key + ".json");
+    }
+
+    public void logStatistics() {
+        if (enabled) {
+            logger.info("Result cache {}: {} reused, {} recomputed", directory, hits.get(), misses.get());
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package JSON;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Builds the matched-result JSON (output_matched.json) from the new-side paths of the
+ * compared rows. The target paths of the mapping are compiled once into a trie of field
+ * templates, where paths sharing a prefix share its nodes, and each path into a list of
+ * steps that hold slot numbers in those nodes. Putting a value then only indexes slot
+ * arrays along the steps, with the element index of each [*] taken from the row; no path
+ * is split or hashed per row. The values are written to a JsonGenerator in one ordered
+ * pass, without an ObjectNode tree.
+ *
+ * Output is the same as the ObjectNode code this replaces: "claims[3]" is element 3 of
+ * array "claims" (with empty objects before it), "claims[*]" is element 0, and the last
+ * segment is always a field name ("tags[2]" there is a field). Fields keep the order they
+ * were first written in within their object, and writing a value replaces whatever was
+ * there before. Not thread-safe.
+ */
+public final class ResultJsonTrie {
+
+    private static final String NOT_MATCHED = "Value not matched";
+    private static final Object NULL_VALUE = new Object();
+
+    // Field names of one object position in the trie, shared by all its instances
+    private static final class Template {
+        private final Map<String, Integer> slots = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+        private final List<Template> objectChildren = new ArrayList<>();
+        private final List<Template> elementChildren = new ArrayList<>();
+
+        int slot(String name) {
+            Integer slot = slots.get(name);
+            if (slot == null) {
+                slot = names.size();
+                slots.put(name, slot);
+                names.add(name);
+                objectChildren.add(null);
+                elementChildren.add(null);
+            }
+            return slot;
+        }
+
+        Template objectChild(int slot) {
+            Template child = objectChildren.get(slot);
+            if (child == null) {
+                child = new Template();
+                objectChildren.set(slot, child);
+            }
+            return child;
+        }
+
+        Template elementChild(int slot) {
+            Template child = elementChildren.get(slot);
+            if (child == null) {
+                child = new Template();
+                elementChildren.set(slot, child);
+            }
+            return child;
+        }
+    }
+
+    // One object of the output: its values by slot, and the slots in first-write order
+    private static final class ObjectValue {
+        private final Template template;
+        private Object[] values;
+        private int[] order = new int[2];
+        private int count;
+
+        ObjectValue(Template template) {
+            this.template = template;
+            this.values = new Object[Math.max(1, template.names.size())];
+        }
+
+        Object get(int slot) {
+            return slot < values.length ? values[slot] : null;
+        }
+
+        void set(int slot, Object value) {
+            if (slot >= values.length) {
+                values = Arrays.copyOf(values, Math.max(slot + 1, values.length * 2));
+            }
+            if (values[slot] == null) {
+                if (count == order.length) order = Arrays.copyOf(order, count * 2);
+                order[count++] = slot;
+            }
+            values[slot] = value;
+        }
+    }
+
+    // An array of the output; its elements are always objects, of the template it holds
+    private static final class ArrayValue {
+        private final Template elementTemplate;
+        private ObjectValue[] elements = new ObjectValue[4];
+        private int size;
+
+        ArrayValue(Template elementTemplate) {
+            this.elementTemplate = elementTemplate;
+        }
+
+        // Element at the index, adding empty objects up to it
+        ObjectValue element(int index) {
+            while (size <= index) {
+                if (size == elements.length) elements = Arrays.copyOf(elements, size * 2);
+                elements[size++] = new ObjectValue(elementTemplate);
+            }
+            return elements[index];
+        }
+    }
+
+    private enum Kind {
+        FIELD,   // Into the object under a fixed name
+        ELEMENT, // Into an element of the array under a fixed name
+        NAMED    // Into the field name[index], for a last or unnamed [*] segment
+    }
+
+    private static final class Step {
+        private final Kind kind;
+        private final String name;
+        private final int slot;     // Slot of the name, or -1 to look it up per row
+        private final int index;    // Element index, or -1 to take it from the row
+        private final int wildcard; // Which of the row's indexes, for a [*] segment
+
+        Step(Kind kind, String name, int slot, int index, int wildcard) {
+            this.kind = kind;
+            this.name = name;
+            this.slot = slot;
+            this.index = index;
+            this.wildcard = wildcard;
+        }
+    }
+
+    // The compiled form of one target path; the last step names the field the value goes in
+    private static final class CompiledTarget {
+        private final Step[] steps;
+
+        CompiledTarget(Step[] steps) {
+            this.steps = steps;
+        }
+    }
+
+    private final Template rootTemplate = new Template();
+    private final Map<CompiledPath, CompiledTarget> targets = new HashMap<>();
+    private ObjectValue root;
+    private int valueCount;
+
+    /**
+     * Compiles the new-side paths of the mapping. Other paths are compiled when first put.
+     */
+    public ResultJsonTrie(CompiledMapping mapping) {
+        for (CompiledMapping.Entry entry : mapping) {
+            target(entry.getNewPath());
+        }
+        root = new ObjectValue(rootTemplate);
+    }
+
+    private CompiledTarget target(CompiledPath path) {
+        CompiledTarget target = targets.get(path);
+        if (target == null) {
+            target = compile(path);
+            targets.put(path, target);
+        }
+        return target;
+    }
+
+    private CompiledTarget compile(CompiledPath path) {
+        int depth = path.depth();
+        if (depth == 0) {
+            // An empty path puts its value under the empty field name, as split("/") did
+            return new CompiledTarget(new Step[] {new Step(Kind.FIELD, "", rootTemplate.slot(""), -1, -1)});
+        }
+        Step[] steps = new Step[depth];
+        Template current = rootTemplate; // Null once the template depends on the row
+        int wildcard = 0;
+        for (int level = 0; level < depth; level++) {
+            String fieldName = path.fieldName(level);
+            boolean last = level == depth - 1;
+            if (path.isWildcard(level)) {
+                if (last || fieldName.isEmpty()) {
+                    // Rendered as the field name[index], so the slot depends on the row
+                    steps[level] = new Step(Kind.NAMED, fieldName, -1, -1, wildcard++);
+                    current = null;
+                } else {
+                    int slot = current != null ? current.slot(fieldName) : -1;
+                    steps[level] = new Step(Kind.ELEMENT, fieldName, slot, -1, wildcard++);
+                    current = current != null ? current.elementChild(slot) : null;
+                }
+                continue;
+            }
+            int bracket = fieldName.endsWith("]") ? fieldName.lastIndexOf('[') : -1;
+            int elementIndex = bracket > 0 && !last ? arrayIndex(fieldName.substring(bracket + 1, fieldName.length() - 1)) : -1;
+            String name = elementIndex >= 0 ? fieldName.substring(0, bracket) : fieldName;
+            int slot = current != null ? current.slot(name) : -1;
+            if (elementIndex >= 0) {
+                // A fixed index written in the mapping, such as claims[3]
+                steps[level] = new Step(Kind.ELEMENT, name, slot, elementIndex, -1);
+                current = current != null ? current.elementChild(slot) : null;
+            } else {
+                steps[level] = new Step(Kind.FIELD, name, slot, -1, -1);
+                current = current != null && !last ? current.objectChild(slot) : null;
+            }
+        }
+        return new CompiledTarget(steps);
+    }
+
+    private static int arrayIndex(String text) {
+        if ("*".equals(text)) return 0;
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Writes the new value at the path if the values matched, "Value not matched" otherwise.
+     * The indexes give the element of each [*] in the path (-1 or null for element 0).
+     */
+    public void put(CompiledPath path, int[] indexes, String newValue, boolean matched) {
+        put(path, indexes, matched ? newValue : NOT_MATCHED);
+    }
+
+    public void put(CompiledPath path, int[] indexes, String value) {
+        Step[] steps = target(path).steps;
+        ObjectValue current = root;
+        for (int i = 0; i < steps.length - 1; i++) {
+            Step step = steps[i];
+            Template template = current.template;
+            int slot = slot(template, step, indexes);
+            if (step.kind == Kind.ELEMENT) {
+                ArrayValue array = (ArrayValue) child(current, slot, template.elementChild(slot), true, path, indexes);
+                current = array.element(step.index >= 0 ? step.index : Math.max(0, index(indexes, step.wildcard)));
+            } else {
+                current = (ObjectValue) child(current, slot, template.objectChild(slot), false, path, indexes);
+            }
+        }
+        Step last = steps[steps.length - 1];
+        current.set(slot(current.template, last, indexes), value != null ? value : NULL_VALUE);
+        valueCount++;
+    }
+
+    private static int slot(Template template, Step step, int[] indexes) {
+        if (step.slot >= 0) return step.slot;
+        return template.slot(step.kind == Kind.NAMED ? namedField(step, indexes) : step.name);
+    }
+
+    private static int index(int[] indexes, int wildcard) {
+        return indexes != null && wildcard < indexes.length ? indexes[wildcard] : -1;
+    }
+
+    // "tags[2]", or "tags[*]" where the row did not fan out
+    private static String namedField(Step step, int[] indexes) {
+        int index = index(indexes, step.wildcard);
+        return step.name + (index >= 0 ? "[" + index + "]" : "[*]");
+    }
+
+    // Returns the object or array under the slot, creating it if the slot is not set
+    private static Object child(ObjectValue parent, int slot, Template template, boolean array,
+                                CompiledPath path, int[] indexes) {
+        Object child = parent.get(slot);
+        if (child == null) {
+            child = array ? new ArrayValue(template) : new ObjectValue(template);
+            parent.set(slot, child);
+        } else if (!(array ? child instanceof ArrayValue : child instanceof ObjectValue)) {
+            throw new UnsupportedOperationException("Property '" + parent.template.names.get(slot) + "' in path "
+                    + concretePath(path, indexes) + " is not " + (array ? "an array" : "an object"));
+        }
+        return child;
+    }
+
+    private static String concretePath(CompiledPath path, int[] indexes) {
+        if (indexes == null) {
+            indexes = new int[path.wildcardCount()];
+            Arrays.fill(indexes, -1);
+        }
+        return path.concretePath(indexes);
+    }
+
+    /** Number of values written, counting overwrites. */
+    public int size() {
+        return valueCount;
+    }
+
+    /**
+     * Writes the JSON pretty-printed to the file, as writerWithDefaultPrettyPrinter() would.
+     */
+    public void writeTo(ObjectMapper objectMapper, File file) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(file, JsonEncoding.UTF8)) {
+            generator.setPrettyPrinter(new DefaultPrettyPrinter());
+            write(generator);
+        }
+    }
+
+    public void write(JsonGenerator generator) throws IOException {
+        write(root, generator);
+    }
+
+    private static void write(Object value, JsonGenerator generator) throws IOException {
+        if (value instanceof ArrayValue) {
+            ArrayValue array = (ArrayValue) value;
+            generator.writeStartArray();
+            for (int i = 0; i < array.size; i++) {
+                write(array.elements[i], generator);
+            }
+            generator.writeEndArray();
+        } else if (value instanceof ObjectValue) {
+            ObjectValue object = (ObjectValue) value;
+            generator.writeStartObject();
+            for (int i = 0; i < object.count; i++) {
+                int slot = object.order[i];
+                generator.writeFieldName(object.template.names.get(slot));
+                write(object.values[slot], generator);
+            }
+            generator.writeEndObject();
+        } else if (value == NULL_VALUE) {
+            generator.writeNull();
+        } else {
+            generator.writeString((String) value);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package JSON;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Per-phase timings, record and byte counts and heap high-water marks for one run of a
+ * comparison tool. Coarse phases (reading the mapping, parsing, writing the workbook) are
+ * timed with start()/close(); per-record work (path lookup, row writing) is accumulated
+ * with now()/record() so it costs two nanoTime calls and no allocation. Every phase is
+ * also emitted as a JsonExcel.Phase JFR event, and finish() writes a JSON summary to
+ * -Dmetrics.dir (default target/metrics). Safe to use from several threads.
+ */
+public final class RunMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(RunMetrics.class);
+
+    private static final String METRICS_DIR_PROPERTY = "metrics.dir";
+    private static final String DEFAULT_METRICS_DIR = "target/metrics";
+    private static final boolean JFR_AVAILABLE = isJfrAvailable();
+
+    private final String run;
+    private final long startNanos = System.nanoTime();
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private final Map<String, PhaseTotals> phases = new ConcurrentHashMap<>();
+
+    private static final class PhaseTotals {
+        private final long order; // First use, so the summary lists phases in pipeline order
+        private final LongAdder invocations = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder records = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final AtomicLong heapUsedMax = new AtomicLong();
+        private volatile boolean emitted; // Already sent to JFR by a timed phase
+
+        PhaseTotals(long order) {
+            this.order = order;
+        }
+    }
+
+    /**
+     * A phase being timed; closing it adds its time and counts to the phase totals.
+     */
+    public final class Phase implements AutoCloseable {
+        private final String name;
+        private final Object jfrEvent;
+        private final long start;
+        private long records;
+        private long bytes;
+
+        private Phase(String name) {
+            this.name = name;
+            this.jfrEvent = JFR_AVAILABLE ? PhaseEvent.begin(run, name) : null;
+            this.start = System.nanoTime();
+        }
+
+        public Phase records(long count) {
+            records += count;
+            return this;
+        }
+
+        public Phase bytes(long count) {
+            bytes += count;
+            return this;
+        }
+
+        @Override
+        public void close() {
+            long elapsed = System.nanoTime() - start;
+            long heapUsed = heapUsed();
+            PhaseTotals totals = add(name, elapsed, records, bytes, heapUsed);
+            if (jfrEvent != null) {
+                totals.emitted = true;
+                PhaseEvent.end(jfrEvent, 1, elapsed, records, bytes, heapUsed);
+            }
+        }
+    }
+
+    public RunMetrics(String run) {
+        this.run = run;
+    }
+
+    public Phase start(String phase) {
+        return new Phase(phase);
+    }
+
+    /** Start time for a later record() call. */
+    public static long now() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Adds the time since startNanos and the given record count to a per-record phase.
+     */
+    public void record(String phase, long startNanos, long records) {
+        PhaseTotals totals = totals(phase);
+        totals.invocations.increment();
+        totals.nanos.add(System.nanoTime() - startNanos);
+        totals.records.add(records);
+    }
+
+    private PhaseTotals add(String phase, long elapsed, long records, long bytes, long heapUsed) {
+        PhaseTotals totals = totals(phase);
+        totals.invocations.increment();
+        totals.nanos.add(elapsed);
+        totals.records.add(records);
+        totals.bytes.add(bytes);
+        totals.heapUsedMax.accumulateAndGet(heapUsed, Math::max);
+        return totals;
+    }
+
+    private PhaseTotals totals(String phase) {
+        PhaseTotals totals = phases.get(phase);
+        if (totals == null) {
+            totals = phases.computeIfAbsent(phase, name -> new PhaseTotals(System.nanoTime()));
+        }
+        return totals;
+    }
+
+    /**
+     * Logs the per-phase summary, emits the accumulated phases to JFR and writes the summary
+     * file. Returns the file, or null if it could not be written.
+     */
+    public File finish() {
+        long totalNanos = System.nanoTime() - startNanos;
+        ObjectNode summary = new ObjectMapper().createObjectNode();
+        summary.put("run", run);
+        summary.put("startedAt", startedAt.toString());
+        summary.put("totalMillis", TimeUnit.NANOSECONDS.toMillis(totalNanos));
+        summary.put("heapPeakBytes", heapPeak());
+        summary.put("heapMaxBytes", Runtime.getRuntime().maxMemory());
+
+        ArrayNode phaseNodes = summary.putArray("phases");
+        phases.entrySet().stream()
+                .sorted((a, b) -> Long.compare(a.getValue().order, b.getValue().order))
+                .forEach(entry -> {
+                    PhaseTotals totals = entry.getValue();
+                    long nanos = totals.nanos.sum();
+                    long records = totals.records.sum();
+                    long bytes = totals.bytes.sum();
+                    double seconds = nanos / 1e9;
+
+                    ObjectNode phase = phaseNodes.addObject();
+                    phase.put("phase", entry.getKey());
+                    phase.put("invocations", totals.invocations.sum());
+                    phase.put("millis", TimeUnit.NANOSECONDS.toMillis(nanos));
+                    phase.put("records", records);
+                    phase.put("recordsPerSecond", seconds > 0 ? Math.round(records / seconds) : 0);
+                    phase.put("bytes", bytes);
+                    phase.put("megabytesPerSecond", seconds > 0 ? Math.round(bytes / seconds / (1024 * 1024) * 100) / 100.0 : 0);
+                    phase.put("heapUsedMaxBytes", totals.heapUsedMax.get());
+
+                    logger.info("Phase {}: {} ms, {} records ({}/s), {} bytes", entry.getKey(),
+                            TimeUnit.NANOSECONDS.toMillis(nanos), records, phase.get("recordsPerSecond").asLong(), bytes);
+                    if (JFR_AVAILABLE && !totals.emitted) {
+                        PhaseEvent.end(PhaseEvent.begin(run, entry.getKey()), totals.invocations.sum(), nanos, records, bytes, totals.heapUsedMax.get());
+                    }
+                });
+
+        File file = new File(System.getProperty(METRICS_DIR_PROPERTY, DEFAULT_METRICS_DIR),
+                run + "_" + startedAt.format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss_SSS")) + ".json");
+        try {
+            file.getParentFile().mkdirs();
+            new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file, summary);
+            logger.info("Run metrics written to {}", file);
+            return file;
+        } catch (IOException e) {
+            logger.warn("Could not write run metrics {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private static long heapUsed() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // Sum of the peak usage of every heap pool since the JVM started
+    private static long heapPeak() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static boolean isJfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package JSON;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reads the elements of one array inside a large JSON file (for example
+ * "/searchResult/searchOutput/claims" or "/data") one at a time with a JsonParser,
+ * so only the current element is ever held in memory. Everything outside the
+ * path to the array is skipped without being materialized.
+ */
+public final class StreamingArrayReader implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamingArrayReader.class);
+
+    public interface ElementHandler {
+        void onElement(JsonNode element) throws IOException;
+    }
+
+    private final ObjectMapper objectMapper;
+    private final JsonParser parser;
+    private boolean inArray;
+    private boolean singleElement; // The path pointed at an object rather than an array
+    private long elementStart = -1;
+    private long elementEnd = -1;
+
+    private StreamingArrayReader(ObjectMapper objectMapper, JsonParser parser) {
+        this.objectMapper = objectMapper;
+        this.parser = parser;
+    }
+
+    public static StreamingArrayReader open(ObjectMapper objectMapper, File file, String arrayPointer) throws IOException {
+        JsonParser parser = objectMapper.getFactory().createParser(file);
+        StreamingArrayReader reader = new StreamingArrayReader(objectMapper, parser);
+        try {
+            reader.seek(arrayPointer, file);
+        } catch (IOException | RuntimeException e) {
+            parser.close();
+            throw e;
+        }
+        return reader;
+    }
+
+    /**
+     * Streams every element of the array to the handler and returns the element count.
+     */
+    public static long forEachElement(ObjectMapper objectMapper, File file, String arrayPointer, ElementHandler handler) throws IOException {
+        long count = 0;
+        try (StreamingArrayReader reader = open(objectMapper, file, arrayPointer)) {
+            JsonNode element;
+            while ((element = reader.next()) != null) {
+                handler.onElement(element);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void seek(String arrayPointer, File file) throws IOException {
+        JsonToken token = parser.nextToken();
+        for (String fieldName : arrayPointer.split("/")) {
+            if (fieldName.isEmpty()) continue;
+            if (token != JsonToken.START_OBJECT) {
+                logger.warn("Expected object before '{}' in {} but found: {}", fieldName, file, token);
+                return;
+            }
+            token = seekField(fieldName);
+            if (token == null) {
+                logger.warn("Field '{}' of '{}' not found in {}", fieldName, arrayPointer, file);
+                return;
+            }
+        }
+
+        if (token == JsonToken.START_ARRAY) {
+            inArray = true;
+        } else if (token == JsonToken.START_OBJECT) {
+            singleElement = true;
+        } else {
+            logger.warn("Expected array at '{}' in {} but found: {}", arrayPointer, file, token);
+        }
+    }
+
+    // Advances to the value of the named field within the current object, skipping all siblings
+    private JsonToken seekField(String fieldName) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String currentName = parser.getCurrentName();
+            JsonToken valueToken = parser.nextToken();
+            if (fieldName.equals(currentName)) {
+                return valueToken;
+            }
+            parser.skipChildren();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the next array element, or null once the array is exhausted.
+     */
+    public JsonNode next() throws IOException {
+        if (singleElement) {
+            singleElement = false;
+            return readElement();
+        }
+        if (!inArray) {
+            return null;
+        }
+        JsonToken token = parser.nextToken();
+        if (token == null || token == JsonToken.END_ARRAY) {
+            inArray = false;
+            return null;
+        }
+        return readElement();
+    }
+
+    private JsonNode readElement() throws IOException {
+        elementStart = parser.getTokenLocation().getByteOffset();
+        JsonNode element = objectMapper.readTree(parser);
+        elementEnd = parser.getCurrentLocation().getByteOffset();
+        return element;
+    }
+
+    /**
+     * Byte offset in the file where the element last returned by next() starts, so it can
+     * be read again later on its own.
+     */
+    public long getElementStart() {
+        return elementStart;
+    }
+
+    /** Byte offset just past the end of the element last returned by next(). */
+    public long getElementEnd() {
+        return elementEnd;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
@@ -0,0 +1,178 @@
+package JSON;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes report rows through an SXSSFWorkbook, which keeps only a fixed window of rows
+ * in memory and flushes the rest to a temporary file. Column widths are estimated while
+ * rows are written, since autoSizeColumn cannot see flushed rows. When a sheet reaches
+ * the Excel row limit the writer continues on a new sheet, and after maxSheetsPerWorkbook
+ * sheets it continues in a new workbook file next to the first one.
+ */
+public final class StreamingReportWriter implements ReportSink {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamingReportWriter.class);
+
+    public static final int DEFAULT_ROW_WINDOW = 100;
+    public static final int DEFAULT_MAX_SHEETS_PER_WORKBOOK = 16;
+
+    private static final int MAX_ROWS_PER_SHEET = SpreadsheetVersion.EXCEL2007.getMaxRows(); // 1,048,576
+    private static final int MAX_COLUMN_CHARS = 255;
+
+    private final String filePath;
+    private final String sheetName;
+    private final String[] headers;
+    private final int rowWindow;
+    private final int maxRowsPerSheet;
+    private final int maxSheetsPerWorkbook;
+    private final List<String> writtenFiles = new ArrayList<>();
+
+    private SXSSFWorkbook workbook;
+    private Sheet sheet;
+    private int[] columnWidths; // Widest value seen per column of the current sheet, in characters
+    private int rowIndex;
+    private int sheetCount;
+    private int workbookCount;
+    private long totalRows;
+    private boolean closed;
+
+    public StreamingReportWriter(String filePath, String sheetName, String... headers) {
+        this(filePath, sheetName, DEFAULT_ROW_WINDOW, MAX_ROWS_PER_SHEET, DEFAULT_MAX_SHEETS_PER_WORKBOOK, headers);
+    }
+
+    public StreamingReportWriter(String filePath, String sheetName, int rowWindow, int maxRowsPerSheet, int maxSheetsPerWorkbook, String... headers) {
+        if (maxRowsPerSheet < 2 || maxRowsPerSheet > MAX_ROWS_PER_SHEET) {
+            throw new IllegalArgumentException("maxRowsPerSheet must be between 2 and " + MAX_ROWS_PER_SHEET);
+        }
+        this.filePath = filePath;
+        this.sheetName = sheetName;
+        this.headers = headers;
+        this.rowWindow = rowWindow;
+        this.maxRowsPerSheet = maxRowsPerSheet;
+        this.maxSheetsPerWorkbook = Math.max(1, maxSheetsPerWorkbook);
+    }
+
+    /**
+     * Appends one row, starting a new sheet or workbook first if the current one is full.
+     * Null values leave their cell empty.
+     */
+    @Override
+    public void writeRow(String... values) throws IOException {
+        if (workbook == null) {
+            startWorkbook();
+        } else if (rowIndex >= maxRowsPerSheet) {
+            if (sheetCount >= maxSheetsPerWorkbook) {
+                finishWorkbook();
+                startWorkbook();
+            } else {
+                startSheet();
+            }
+        }
+        writeCells(values);
+        totalRows++;
+    }
+
+    private void writeCells(String[] values) {
+        Row row = sheet.createRow(rowIndex++);
+        for (int i = 0; i < values.length; i++) {
+            String value = values[i];
+            if (value == null) continue; // Leave the cell empty
+            row.createCell(i).setCellValue(value);
+            if (i < columnWidths.length && value.length() > columnWidths[i]) {
+                columnWidths[i] = Math.min(value.length(), MAX_COLUMN_CHARS);
+            }
+        }
+    }
+
+    private void startWorkbook() {
+        workbook = new SXSSFWorkbook(rowWindow);
+        workbook.setCompressTempFiles(true);
+        workbookCount++;
+        sheetCount = 0;
+        startSheet();
+    }
+
+    private void startSheet() {
+        if (sheet != null) {
+            applyColumnWidths();
+        }
+        sheetCount++;
+        sheet = workbook.createSheet(sheetCount == 1 ? sheetName : sheetName + " (" + sheetCount + ")");
+        columnWidths = new int[headers.length];
+        rowIndex = 0;
+        writeCells(headers);
+    }
+
+    private void applyColumnWidths() {
+        for (int i = 0; i < columnWidths.length; i++) {
+            // Column width is measured in 1/256ths of a character, plus a little padding
+            sheet.setColumnWidth(i, Math.min(columnWidths[i] + 2, MAX_COLUMN_CHARS) * 256);
+        }
+    }
+
+    private void finishWorkbook() throws IOException {
+        applyColumnWidths();
+        String outputPath = workbookCount == 1 ? filePath : partPath(workbookCount);
+        try (FileOutputStream fos = new FileOutputStream(outputPath)) {
+            workbook.write(fos);
+        } finally {
+            workbook.dispose(); // Delete the temporary files backing the flushed rows
+            workbook.close();
+            workbook = null;
+            sheet = null;
+        }
+        writtenFiles.add(outputPath);
+        logger.info("Report workbook written: {}", outputPath);
+    }
+
+    // Data/output.xlsx -> Data/output_2.xlsx
+    private String partPath(int part) {
+        int dot = filePath.lastIndexOf('.');
+        int separator = Math.max(filePath.lastIndexOf('/'), filePath.lastIndexOf('\\'));
+        if (dot <= separator) {
+            return filePath + "_" + part;
+        }
+        return filePath.substring(0, dot) + "_" + part + filePath.substring(dot);
+    }
+
+    @Override
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    @Override
+    public String getPath() {
+        return filePath;
+    }
+
+    public List<String> getWrittenFiles() {
+        return writtenFiles;
+    }
+
+    /**
+     * Writes the last workbook. A report with no rows still gets its header row. Only the
+     * first call does anything, even if it fails: closing again after a failed write must
+     * not replace the output with a header-only workbook.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        if (workbook == null && writtenFiles.isEmpty()) {
+            startWorkbook();
+        }
+        if (workbook != null) {
+            finishWorkbook();
+        }
+    }
+}
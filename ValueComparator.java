@@ -0,0 +1,197 @@
+package JSON;
+
+import java.math.BigDecimal;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.DecimalNode;
+
+/**
+ * Compares JSON values by type on the JsonNode itself instead of through asText(). Numbers
+ * compare by value (10 equals 10.0), booleans and text natively, and nothing is allocated
+ * for ordinary int, long, double, boolean or text leaves. A missing or null value never
+ * matches, as before.
+ *
+ * Text that is a JSON number ("1", "-2.50", "1e3", but not "01", "NaN" or "0x10") stands
+ * for that number, and "true"/"false" for the boolean, so "1" matches 1 and "true" matches
+ * true as they did with asText(). Payer files often hold numbers and IDs as text. Two such
+ * texts compare by value too ("1.0" matches "1"), which keeps matching an equivalence that
+ * hashKey() can follow exactly.
+ *
+ * Options, read once at startup:
+ * -Dcompare.tolerance=0.005  numbers within this absolute difference match
+ * -Dcompare.canonical=true   text is trimmed and boolean text is case-insensitive
+ */
+public final class ValueComparator {
+
+    private static final double TOLERANCE = Double.parseDouble(System.getProperty("compare.tolerance", "0"));
+    private static final boolean CANONICAL = Boolean.getBoolean("compare.canonical");
+    private static final int MAX_PLAIN_SCALE = 64;
+
+    private ValueComparator() {
+    }
+
+    public static boolean matches(JsonNode oldNode, JsonNode newNode) {
+        if (isAbsent(oldNode) || isAbsent(newNode)) {
+            return false;
+        }
+        if (oldNode.isNumber() && newNode.isNumber()) {
+            return numbersMatch(oldNode, newNode);
+        }
+        if (oldNode.isBoolean() && newNode.isBoolean()) {
+            return oldNode.booleanValue() == newNode.booleanValue();
+        }
+        if (oldNode.isTextual() && newNode.isTextual()) {
+            String oldText = text(oldNode.textValue());
+            String newText = text(newNode.textValue());
+            if (oldText.equals(newText)) return true;
+            if (isJsonNumber(oldText)) return isJsonNumber(newText) && numbersMatch(decimal(oldText), decimal(newText));
+            return isBooleanText(oldText) && isBooleanText(newText) && oldText.equalsIgnoreCase(newText);
+        }
+        if (oldNode.isContainerNode() || newNode.isContainerNode()) {
+            return oldNode.equals(newNode);
+        }
+        // Mixed scalar types: text matches the number or boolean it spells
+        if (oldNode.isTextual()) return mixedMatch(text(oldNode.textValue()), newNode);
+        if (newNode.isTextual()) return mixedMatch(text(newNode.textValue()), oldNode);
+        return false;
+    }
+
+    private static boolean isAbsent(JsonNode node) {
+        return node == null || node.isMissingNode() || node.isNull();
+    }
+
+    private static String text(String value) {
+        return CANONICAL ? value.trim() : value;
+    }
+
+    private static boolean numbersMatch(JsonNode a, JsonNode b) {
+        if (a.isIntegralNumber() && b.isIntegralNumber() && a.canConvertToLong() && b.canConvertToLong()) {
+            long difference = a.longValue() - b.longValue();
+            return difference == 0 || (TOLERANCE > 0 && Math.abs((double) difference) <= TOLERANCE);
+        }
+        if (a.isBigDecimal() || b.isBigDecimal() || a.isBigInteger() || b.isBigInteger()) {
+            // Beyond double precision; rare enough that allocating here is fine
+            BigDecimal x = a.decimalValue();
+            BigDecimal y = b.decimalValue();
+            if (x.compareTo(y) == 0) return true;
+            if (TOLERANCE <= 0) return false;
+            if (isExtreme(x) || isExtreme(y)) {
+                // Subtracting 1e999999 and 1 exactly would expand a million digits
+                double dx = x.doubleValue();
+                double dy = y.doubleValue();
+                return Double.isFinite(dx) && Double.isFinite(dy) && doublesMatch(dx, dy);
+            }
+            return x.subtract(y).abs().compareTo(BigDecimal.valueOf(TOLERANCE)) <= 0;
+        }
+        return doublesMatch(a.doubleValue(), b.doubleValue());
+    }
+
+    private static boolean isExtreme(BigDecimal value) {
+        return Math.abs((long) value.precision() - value.scale()) > MAX_PLAIN_SCALE;
+    }
+
+    private static boolean doublesMatch(double a, double b) {
+        return a == b || (TOLERANCE > 0 && Math.abs(a - b) <= TOLERANCE);
+    }
+
+    // Text against a number or a boolean
+    private static boolean mixedMatch(String text, JsonNode other) {
+        if (other.isBoolean()) {
+            return isBooleanText(text) && text.equalsIgnoreCase(other.booleanValue() ? "true" : "false");
+        }
+        return other.isNumber() && isJsonNumber(text) && numbersMatch(decimal(text), other);
+    }
+
+    private static JsonNode decimal(String jsonNumber) {
+        return DecimalNode.valueOf(new BigDecimal(jsonNumber));
+    }
+
+    private static boolean isBooleanText(String text) {
+        return CANONICAL ? "true".equalsIgnoreCase(text) || "false".equalsIgnoreCase(text)
+                : "true".equals(text) || "false".equals(text);
+    }
+
+    /**
+     * Whether the text is a number in JSON syntax: an optional minus, an integer part
+     * without leading zeros, then an optional fraction and exponent. Stricter than
+     * Double.parseDouble, which also takes "NaN", "1d", "+1" and "0x1p3".
+     */
+    static boolean isJsonNumber(String text) {
+        int length = text.length();
+        int i = 0;
+        if (i < length && text.charAt(i) == '-') i++;
+        if (i >= length) return false;
+        if (text.charAt(i) == '0') {
+            i++;
+        } else if (isDigit(text.charAt(i))) {
+            while (i < length && isDigit(text.charAt(i))) i++;
+        } else {
+            return false;
+        }
+        if (i < length && text.charAt(i) == '.') {
+            i++;
+            int start = i;
+            while (i < length && isDigit(text.charAt(i))) i++;
+            if (i == start) return false;
+        }
+        if (i < length && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            i++;
+            if (i < length && (text.charAt(i) == '+' || text.charAt(i) == '-')) i++;
+            int start = i;
+            while (i < length && isDigit(text.charAt(i))) i++;
+            if (i == start) return false;
+        }
+        return i == length;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Text of a value for a report cell, or null for a missing value. Called only when a
+     * row is actually written.
+     */
+    public static String text(JsonNode node) {
+        return node == null ? null : node.asText(null);
+    }
+
+    /**
+     * Hash-join key of a scalar value, or null for missing, null and container values.
+     * Values that match() with zero tolerance get the same key, including numeric or
+     * boolean text and the number or boolean it spells. Tolerance is not reflected, so a
+     * hash join only pairs exactly equal numbers.
+     */
+    public static String hashKey(JsonNode node) {
+        if (isAbsent(node) || !node.isValueNode()) {
+            return null;
+        }
+        if (node.isNumber()) {
+            if (node.isIntegralNumber() && node.canConvertToLong()) {
+                return "n:" + node.longValue();
+            }
+            if ((node.isDouble() || node.isFloat()) && !Double.isFinite(node.doubleValue())) {
+                return "n:" + node.doubleValue(); // Infinity and NaN have no decimal form
+            }
+            return numberKey(node.decimalValue());
+        }
+        if (node.isBoolean()) {
+            return node.booleanValue() ? "b:true" : "b:false";
+        }
+        String text = node.isTextual() ? text(node.textValue()) : node.asText();
+        if (isBooleanText(text)) {
+            return "b:" + text.toLowerCase();
+        }
+        if (isJsonNumber(text)) {
+            return numberKey(new BigDecimal(text));
+        }
+        return "s:" + text;
+    }
+
+    // 10, 10.0 and 1E+1 all give "n:10"; huge exponents keep the E form instead of expanding
+    private static String numberKey(BigDecimal value) {
+        if (value.signum() == 0) return "n:0";
+        BigDecimal stripped = value.stripTrailingZeros();
+        return "n:" + (Math.abs(stripped.scale()) <= MAX_PLAIN_SCALE ? stripped.toPlainString() : stripped.toString());
+    }
+}
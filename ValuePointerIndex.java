@@ -0,0 +1,130 @@
+package JSON;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Inverted index from scalar values to every place they occur: each document added is
+ * walked once, and every leaf is recorded under its key as (source, JSON pointer), with
+ * the pointers JsonToExcelMapping.generateJsonPointers produces. "Where does this value
+ * appear" then is one hash lookup instead of a recursive scan per value and document, and
+ * one index can hold a whole batch of files.
+ *
+ * The key of a leaf is chosen per index: byValue() uses ValueComparator.hashKey (so 10 and
+ * 10.0 share a key, and nulls are not indexed), byDigits() the digits extractNumeric keeps.
+ * Occurrences are kept in the order they were added, which is document order within a
+ * source. Not thread-safe.
+ */
+public final class ValuePointerIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ValuePointerIndex.class);
+
+    /** One place a value occurs. */
+    public static final class Occurrence {
+        private final int sourceId;
+        private final String pointer;
+
+        Occurrence(int sourceId, String pointer) {
+            this.sourceId = sourceId;
+            this.pointer = pointer;
+        }
+
+        public int getSourceId() {
+            return sourceId;
+        }
+
+        public String getPointer() {
+            return pointer;
+        }
+    }
+
+    private final Function<JsonNode, String> keyFunction;
+    private final Map<String, List<Occurrence>> occurrences = new HashMap<>();
+    private final List<String> sources = new ArrayList<>();
+    private long leafCount;
+
+    /**
+     * Creates an index keyed by keyFunction; leaves it returns null or "" for are not indexed.
+     */
+    public ValuePointerIndex(Function<JsonNode, String> keyFunction) {
+        this.keyFunction = keyFunction;
+    }
+
+    /** Keys leaves by typed value, as the comparisons do. */
+    public static ValuePointerIndex byValue() {
+        return new ValuePointerIndex(ValueComparator::hashKey);
+    }
+
+    /** Keys leaves by the digits of their Python str(), as search_value_in_json does. */
+    public static ValuePointerIndex byDigits() {
+        return new ValuePointerIndex(RecordExtractionPipeline::extractNumeric);
+    }
+
+    /**
+     * Indexes every leaf of the document under the given source name and returns the
+     * source id its occurrences carry.
+     */
+    public int add(String source, JsonNode document) {
+        int sourceId = sources.size();
+        sources.add(source);
+        JsonFlattener.Cursor leaves = new JsonFlattener.Cursor(document, "");
+        while (leaves.next()) {
+            leafCount++;
+            String key = keyFunction.apply((JsonNode) leaves.value());
+            if (key == null || key.isEmpty()) continue;
+            occurrences.computeIfAbsent(key, k -> new ArrayList<>(1)).add(new Occurrence(sourceId, leaves.pointer()));
+        }
+        return sourceId;
+    }
+
+    /**
+     * Parses and indexes a file, with its path as the source name.
+     */
+    public int add(ObjectMapper objectMapper, File file) throws IOException {
+        return add(file.getPath(), objectMapper.readTree(file));
+    }
+
+    /**
+     * Every occurrence of the key, in the order added; empty if there is none.
+     */
+    public List<Occurrence> lookup(String key) {
+        List<Occurrence> found = occurrences.get(key);
+        return found != null ? Collections.unmodifiableList(found) : Collections.<Occurrence>emptyList();
+    }
+
+    /**
+     * Every occurrence of the value under this index's key function.
+     */
+    public List<Occurrence> lookupValue(JsonNode value) {
+        String key = keyFunction.apply(value);
+        return key == null || key.isEmpty() ? Collections.<Occurrence>emptyList() : lookup(key);
+    }
+
+    public String getSource(int sourceId) {
+        return sources.get(sourceId);
+    }
+
+    public int getSourceCount() {
+        return sources.size();
+    }
+
+    public int getKeyCount() {
+        return occurrences.size();
+    }
+
+    public void logStatistics() {
+        logger.info("Value index: {} sources, {} leaves, {} distinct keys", sources.size(), leafCount, occurrences.size());
+    }
+}
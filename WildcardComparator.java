@@ -0,0 +1,218 @@
+package JSON;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+
+/**
+ * Evaluates a mapping entry against every element of each "[*]" array instead of only
+ * the first one. Old and new elements are paired by a configured key field through a
+ * hash lookup, or by position when the array has no key configured, so arrays with
+ * hundreds of elements are aligned in linear time. Elements sharing a key pair in order:
+ * the first old one with the first new one, the second with the second.
+ */
+public final class WildcardComparator {
+
+    private static final Logger logger = LoggerFactory.getLogger(WildcardComparator.class);
+
+    public interface PairHandler {
+        /**
+         * Called once per aligned leaf pair with the element index chosen at each [*] of the
+         * old and new path (see CompiledPath.concretePath), -1 where a side was not fanned
+         * out. The indexes are null when that side has no element paired with the other
+         * side; its value is then a MissingNode. The arrays are reused, so they are only
+         * valid during the call.
+         */
+        void onPair(int[] oldIndexes, int[] newIndexes, JsonNode oldValue, JsonNode newValue) throws IOException;
+    }
+
+    private final Map<String, CompiledPath> keyFields = new HashMap<>();
+
+    /**
+     * @param keyFields array field name to the path of its key field within an element,
+     *                  for example "claimInfoCodes" -> "claimNumber"
+     */
+    public WildcardComparator(Map<String, String> keyFields) {
+        for (Map.Entry<String, String> entry : keyFields.entrySet()) {
+            this.keyFields.put(entry.getKey(), CompiledPath.compile(entry.getValue()));
+        }
+    }
+
+    /**
+     * Parses a key field list such as "claimInfoCodes=claimNumber,serviceLines=lineNumber".
+     */
+    public static Map<String, String> parseKeyFields(String spec) {
+        Map<String, String> keyFields = new HashMap<>();
+        if (spec == null) return keyFields;
+        for (String pair : spec.split(",")) {
+            int separator = pair.indexOf('=');
+            if (separator <= 0) {
+                if (!pair.trim().isEmpty()) logger.warn("Ignoring array key field '{}', expected array=keyPath", pair);
+                continue;
+            }
+            keyFields.put(pair.substring(0, separator).trim(), pair.substring(separator + 1).trim());
+        }
+        return keyFields;
+    }
+
+    public void compare(JsonNode oldRoot, JsonNode newRoot, CompiledMapping.Entry entry, PairHandler handler) throws IOException {
+        Walk walk = new Walk(entry.getOldPath(), entry.getNewPath(), handler);
+        walk.visit(oldRoot, 0, 0, newRoot, 0, 0);
+    }
+
+    // State of one mapping entry's walk: the element index chosen at each wildcard of either side
+    private final class Walk {
+        private final CompiledPath oldPath;
+        private final CompiledPath newPath;
+        private final PairHandler handler;
+        private final int[] oldIndexes;
+        private final int[] newIndexes;
+
+        Walk(CompiledPath oldPath, CompiledPath newPath, PairHandler handler) {
+            this.oldPath = oldPath;
+            this.newPath = newPath;
+            this.handler = handler;
+            this.oldIndexes = new int[oldPath.wildcardCount()];
+            this.newIndexes = new int[newPath.wildcardCount()];
+        }
+
+        // A null node means that side has no element at this point of the walk
+        void visit(JsonNode oldNode, int oldLevel, int oldWildcard, JsonNode newNode, int newLevel, int newWildcard) throws IOException {
+            // Follow plain segments up to the next wildcard on each side
+            while (oldNode != null && oldLevel < oldPath.depth() && !oldPath.isWildcard(oldLevel)) {
+                oldNode = oldPath.step(oldNode, oldLevel++);
+            }
+            while (newNode != null && newLevel < newPath.depth() && !newPath.isWildcard(newLevel)) {
+                newNode = newPath.step(newNode, newLevel++);
+            }
+            if (oldNode == null) oldLevel = advanceToWildcard(oldPath, oldLevel);
+            if (newNode == null) newLevel = advanceToWildcard(newPath, newLevel);
+
+            boolean oldAtLeaf = oldLevel == oldPath.depth();
+            boolean newAtLeaf = newLevel == newPath.depth();
+
+            if (oldAtLeaf && newAtLeaf) {
+                handler.onPair(oldNode != null ? oldIndexes : null, newNode != null ? newIndexes : null,
+                        oldNode != null ? oldNode : MissingNode.getInstance(),
+                        newNode != null ? newNode : MissingNode.getInstance());
+                return;
+            }
+
+            JsonNode oldArray = oldAtLeaf ? null : elements(oldPath, oldNode, oldLevel);
+            JsonNode newArray = newAtLeaf ? null : elements(newPath, newNode, newLevel);
+            int oldSize = oldArray != null ? oldArray.size() : 0;
+            int newSize = newArray != null ? newArray.size() : 0;
+
+            if (oldSize == 0 && newSize == 0) {
+                // Nothing to fan out over: report the entry once, keeping the value of a side already at its leaf
+                handler.onPair(oldNode == null ? null : oldAtLeaf ? oldIndexes : unexpanded(oldIndexes, oldWildcard),
+                        newNode == null ? null : newAtLeaf ? newIndexes : unexpanded(newIndexes, newWildcard),
+                        oldAtLeaf && oldNode != null ? oldNode : MissingNode.getInstance(),
+                        newAtLeaf && newNode != null ? newNode : MissingNode.getInstance());
+                return;
+            }
+
+            if (oldAtLeaf) {
+                // Only the new side is an array: compare each new element with the same old value
+                for (int i = 0; i < newSize; i++) {
+                    newIndexes[newWildcard] = i;
+                    visit(oldNode, oldLevel, oldWildcard, newArray.get(i), newLevel + 1, newWildcard + 1);
+                }
+                return;
+            }
+            if (newAtLeaf) {
+                for (int i = 0; i < oldSize; i++) {
+                    oldIndexes[oldWildcard] = i;
+                    visit(oldArray.get(i), oldLevel + 1, oldWildcard + 1, newNode, newLevel, newWildcard);
+                }
+                return;
+            }
+
+            align(oldArray, oldSize, oldLevel, oldWildcard, newArray, newSize, newLevel, newWildcard);
+        }
+
+        // The indexes chosen so far, with the wildcards from this one on left as [*]
+        private int[] unexpanded(int[] indexes, int wildcard) {
+            int[] copy = indexes.clone();
+            Arrays.fill(copy, wildcard, copy.length, -1);
+            return copy;
+        }
+
+        private void align(JsonNode oldArray, int oldSize, int oldLevel, int oldWildcard,
+                           JsonNode newArray, int newSize, int newLevel, int newWildcard) throws IOException {
+            CompiledPath oldKey = keyFields.get(oldPath.fieldName(oldLevel));
+            CompiledPath newKey = keyFields.get(newPath.fieldName(newLevel));
+            BitSet pairedNew = new BitSet(newSize);
+
+            if (oldKey != null && newKey != null) {
+                // Hash the new elements by key, then look up each old element once
+                Map<String, ArrayDeque<Integer>> newByKey = new HashMap<>(newSize * 2);
+                for (int i = 0; i < newSize; i++) {
+                    String key = keyOf(newKey, newArray.get(i));
+                    if (key != null) newByKey.computeIfAbsent(key, k -> new ArrayDeque<>(1)).add(i);
+                }
+                for (int i = 0; i < oldSize; i++) {
+                    String key = keyOf(oldKey, oldArray.get(i));
+                    ArrayDeque<Integer> candidates = key != null ? newByKey.get(key) : null;
+                    Integer match = candidates != null ? candidates.poll() : null;
+                    oldIndexes[oldWildcard] = i;
+                    if (match != null) {
+                        pairedNew.set(match);
+                        newIndexes[newWildcard] = match;
+                        visit(oldArray.get(i), oldLevel + 1, oldWildcard + 1, newArray.get(match), newLevel + 1, newWildcard + 1);
+                    } else {
+                        visit(oldArray.get(i), oldLevel + 1, oldWildcard + 1, null, newLevel + 1, newWildcard + 1);
+                    }
+                }
+            } else {
+                // No key configured: pair elements by position
+                for (int i = 0; i < oldSize; i++) {
+                    oldIndexes[oldWildcard] = i;
+                    if (i < newSize) {
+                        pairedNew.set(i);
+                        newIndexes[newWildcard] = i;
+                        visit(oldArray.get(i), oldLevel + 1, oldWildcard + 1, newArray.get(i), newLevel + 1, newWildcard + 1);
+                    } else {
+                        visit(oldArray.get(i), oldLevel + 1, oldWildcard + 1, null, newLevel + 1, newWildcard + 1);
+                    }
+                }
+            }
+
+            // New elements nobody paired with
+            for (int i = pairedNew.nextClearBit(0); i < newSize; i = pairedNew.nextClearBit(i + 1)) {
+                newIndexes[newWildcard] = i;
+                visit(null, oldLevel + 1, oldWildcard + 1, newArray.get(i), newLevel + 1, newWildcard + 1);
+            }
+        }
+    }
+
+    // Skips the remaining plain segments of a side that has no node
+    private static int advanceToWildcard(CompiledPath path, int level) {
+        while (level < path.depth() && !path.isWildcard(level)) level++;
+        return level;
+    }
+
+    // Returns the array a wildcard iterates over, or null when the side is absent or not an array
+    private static JsonNode elements(CompiledPath path, JsonNode node, int level) {
+        if (node == null) return null;
+        JsonNode arrayNode = path.arrayAt(node, level);
+        if (!arrayNode.isArray()) {
+            logger.warn("Expected array at key '{}' but found: {}", path.fieldName(level), arrayNode);
+            return null;
+        }
+        return arrayNode;
+    }
+
+    private static String keyOf(CompiledPath keyPath, JsonNode element) {
+        return ValueComparator.hashKey(keyPath.resolve(element));
+    }
+}
@@ -0,0 +1,113 @@
+package JSON;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Mapped-path comparison: resolving both sides of every mapping entry (what findNodeValue
+ * used to do), building and writing the matched JSON with ResultJsonTrie, and matching records.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompareBenchmark {
+
+    /** Number of records in each document; the mapping has five entries per record. */
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private JsonNode legacyJson;
+    private JsonNode payerJson;
+    private JsonNode legacyClaims;
+    private JsonNode payerRecords;
+    private CompiledMapping mapping;
+    private CompiledMapping recordMapping;
+    private CompiledPath[] newPaths;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    @Setup
+    public void setUp() {
+        SyntheticData data = new SyntheticData();
+        legacyJson = data.legacyDocument(size);
+        payerJson = data.payerDocument(size);
+        legacyClaims = legacyJson.at("/searchResult/searchOutput/claims");
+        payerRecords = payerJson.at("/data");
+        mapping = CompiledMapping.compile(SyntheticData.mapping(size));
+        // The join runs per record, so its mapping is relative to a claim and a data element
+        recordMapping = CompiledMapping.compile(Collections.singletonMap("email", "contact/primaryEmail"));
+
+        List<CompiledMapping.Entry> entries = mapping.entries();
+        newPaths = new CompiledPath[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            newPaths[i] = entries.get(i).getNewPath();
+        }
+    }
+
+    @Benchmark
+    public void resolveMappedValues(Blackhole blackhole) {
+        for (CompiledMapping.Entry entry : mapping) {
+            blackhole.consume(entry.getOldPath().valueText(legacyJson));
+            blackhole.consume(entry.getNewPath().valueText(payerJson));
+        }
+    }
+
+    @Benchmark
+    public int compareMappedValuesAsText() {
+        int matched = 0;
+        for (CompiledMapping.Entry entry : mapping) {
+            String oldValue = entry.getOldPath().valueText(legacyJson);
+            if (oldValue != null && oldValue.equals(entry.getNewPath().valueText(payerJson))) matched++;
+        }
+        return matched;
+    }
+
+    @Benchmark
+    public int compareMappedValuesTyped() {
+        int matched = 0;
+        for (CompiledMapping.Entry entry : mapping) {
+            if (ValueComparator.matches(entry.getOldPath().resolve(legacyJson), entry.getNewPath().resolve(payerJson))) matched++;
+        }
+        return matched;
+    }
+
+    @Benchmark
+    public int writeResultJson() throws IOException {
+        ResultJsonTrie resultJson = new ResultJsonTrie(mapping);
+        for (int i = 0; i < newPaths.length; i++) {
+            resultJson.put(newPaths[i], null, "value", i % 10 != 0);
+        }
+        try (JsonGenerator generator = jsonFactory.createGenerator(new ByteArrayOutputStream())) {
+            resultJson.write(generator);
+        }
+        return resultJson.size();
+    }
+
+    @Benchmark
+    public int hashJoin() {
+        HashJoinMatcher matcher = new HashJoinMatcher(recordMapping, HashJoinMatcher.Rule.ANY_FIELD);
+        return matcher.match(legacyClaims, payerRecords, (legacyRecord, payerRecord) -> { });
+    }
+}
@@ -0,0 +1,67 @@
+package JSON;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JsonToExcelMapping's flattening: listing every leaf pointer, looking each one up again,
+ * and the single-pass JsonFlattener walk that replaces both.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlattenBenchmark {
+
+    /** Number of records in the document. */
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private Map<String, Object> document;
+    private List<String> pointers;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        SyntheticData data = new SyntheticData();
+        document = data.objectMapper().convertValue(data.legacyDocument(size), Map.class);
+        pointers = JsonToExcelMapping.generateJsonPointers(document, "");
+    }
+
+    @Benchmark
+    public List<String> generateJsonPointers() {
+        return JsonToExcelMapping.generateJsonPointers(document, "");
+    }
+
+    @Benchmark
+    public void getKeyValueFromPointer(Blackhole blackhole) {
+        for (String pointer : pointers) {
+            blackhole.consume(JsonToExcelMapping.getKeyValueFromPointer(document, pointer));
+        }
+    }
+
+    @Benchmark
+    public void flattenToSink(Blackhole blackhole) throws IOException {
+        JsonFlattener.flatten(document, "", (pointer, key, value) -> {
+            blackhole.consume(pointer);
+            blackhole.consume(JsonFlattener.keyValue(key, value));
+        });
+    }
+}
@@ -0,0 +1,111 @@
+package JSON;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Spreadsheet I/O: writing a comparison report and loading a mapping sheet, both from the
+ * workbook itself and from the binary snapshot MappingReader keeps for unchanged sheets.
+ * Also storing report rows off-heap in a ComparisonResultStore and reading them back.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportBenchmark {
+
+    /** Number of report rows, and of mapping rows. */
+    @Param({"100", "10000", "100000"})
+    public int size;
+
+    private Path workDirectory;
+    private Path mappingWorkbook;
+    private Path reportFile;
+    private String[][] rows;
+    private CompiledPath[][] rowPaths;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        workDirectory = Files.createTempDirectory("jsonexcel-bench");
+        Map<String, String> mapping = SyntheticData.mapping(size / 5);
+        mappingWorkbook = SyntheticData.writeMappingWorkbook(mapping, workDirectory);
+        reportFile = workDirectory.resolve("report.xlsx");
+
+        rows = new String[size][];
+        rowPaths = new CompiledPath[size][];
+        CompiledMapping compiled = CompiledMapping.compile(mapping);
+        int i = 0;
+        while (i < size) {
+            for (CompiledMapping.Entry entry : compiled) {
+                if (i == size) break;
+                rowPaths[i] = new CompiledPath[] {entry.getOldPath(), entry.getNewPath()};
+                rows[i++] = new String[] {entry.getOldPath().getPath(), entry.getNewPath().getPath(), "value" + i, "value" + i, "Matched"};
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.clearProperty("mapping.cache.dir");
+        try (Stream<Path> files = Files.walk(workDirectory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public long writeReport() throws IOException {
+        try (StreamingReportWriter report = new StreamingReportWriter(reportFile.toString(), "Comparison Results",
+                "Old Path", "New Path", "Old Value", "New Value", "Matched/Not Matched")) {
+            for (String[] row : rows) {
+                report.writeRow(row);
+            }
+            return report.getTotalRows(); // Closing, which writes the workbook, is still measured
+        }
+    }
+
+    @Benchmark
+    public long storeAndReadRows() throws IOException {
+        try (ComparisonResultStore results = new ComparisonResultStore(workDirectory.toFile())) {
+            for (int i = 0; i < rows.length; i++) {
+                results.add(rowPaths[i][0], null, rowPaths[i][1], null, rows[i][2], rows[i][3], true);
+            }
+            long[] count = {0};
+            results.forEach((oldPath, newPath, oldValue, newValue, matched) -> count[0]++);
+            return count[0];
+        }
+    }
+
+    @Benchmark
+    public Map<String, String> readMappingSheet() throws IOException {
+        // A fresh cache directory each time, so the sheet is always parsed
+        System.setProperty("mapping.cache.dir", Files.createTempDirectory(workDirectory, "cold").toString());
+        return MappingReader.readPaths(mappingWorkbook.toString());
+    }
+
+    @Benchmark
+    public Map<String, String> readMappingSnapshot() throws IOException {
+        System.setProperty("mapping.cache.dir", workDirectory.resolve("warm").toString());
+        return MappingReader.readPaths(mappingWorkbook.toString());
+    }
+}
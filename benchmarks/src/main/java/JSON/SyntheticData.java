@@ -0,0 +1,117 @@
+package JSON;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Generates legacy and payer documents shaped like document_id_*.json and user_id_*.json,
+ * wrapped in the claims/data arrays the compare classes read, plus a matching mapping.
+ * A fixed seed keeps every run on the same data.
+ */
+final class SyntheticData {
+
+    private static final String[] CITIES = {"New York", "Chicago", "Houston", "Phoenix", "Seattle"};
+    private static final String[] STATES = {"NY", "IL", "TX", "AZ", "WA"};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Random random = new Random(42);
+
+    /** {"searchResult":{"searchOutput":{"claims":[...]}}} with one document_id-like record per claim. */
+    JsonNode legacyDocument(int records) {
+        ObjectNode root = objectMapper.createObjectNode();
+        ArrayNode claims = root.putObject("searchResult").putObject("searchOutput").putArray("claims");
+        for (int i = 0; i < records; i++) {
+            int place = random.nextInt(CITIES.length);
+            ObjectNode claim = claims.addObject();
+            claim.put("id", i + 1);
+            claim.put("name", "Member " + i);
+            claim.put("age", 20 + random.nextInt(60));
+            claim.put("email", "member" + i + "@example.com");
+            ObjectNode address = claim.putObject("address");
+            address.put("street", (100 + i) + " Main St");
+            address.put("city", CITIES[place]);
+            address.put("state", STATES[place]);
+            address.put("zip", String.format("%05d", 10000 + i));
+            claim.putArray("preferences").add("email").add("sms");
+            claim.put("isActive", random.nextBoolean());
+        }
+        return root;
+    }
+
+    /** {"data":[...]} with one user_id-like record per legacy record; most values agree with the legacy side. */
+    JsonNode payerDocument(int records) {
+        ObjectNode root = objectMapper.createObjectNode();
+        ArrayNode data = root.putArray("data");
+        for (int i = 0; i < records; i++) {
+            int place = random.nextInt(CITIES.length);
+            ObjectNode user = data.addObject();
+            user.put("userId", i + 1);
+            user.put("fullName", random.nextInt(10) == 0 ? "Changed " + i : "Member " + i);
+            user.put("dob", "1990-01-01");
+            ObjectNode contact = user.putObject("contact");
+            contact.put("primaryEmail", "member" + i + "@example.com");
+            contact.put("mobile", "+1" + (2000000000L + i));
+            ObjectNode location = user.putObject("location");
+            location.put("city", CITIES[place]);
+            location.put("state", STATES[place]);
+            location.put("country", "USA");
+            ObjectNode preferences = user.putObject("preferences");
+            preferences.put("receiveEmails", true);
+            preferences.put("receiveSms", random.nextBoolean());
+            user.put("status", "Active");
+        }
+        return root;
+    }
+
+    /** Old-path to new-path pairs between the two documents, one group per record. */
+    static Map<String, String> mapping(int records) {
+        Map<String, String> mapping = new LinkedHashMap<>();
+        for (int i = 0; i < records; i++) {
+            String claim = "/searchResult/searchOutput/claims/" + i;
+            String user = "/data/" + i;
+            mapping.put(claim + "/id", user + "/userId");
+            mapping.put(claim + "/name", user + "/fullName");
+            mapping.put(claim + "/email", user + "/contact/primaryEmail");
+            mapping.put(claim + "/address/city", user + "/location/city");
+            mapping.put(claim + "/address/state", user + "/location/state");
+        }
+        return mapping;
+    }
+
+    /** Writes the mapping as a sheet laid out like Data/mapping.xlsx: a header row, then old path, new path. */
+    static Path writeMappingWorkbook(Map<String, String> mapping, Path directory) throws IOException {
+        Path file = Files.createTempFile(directory, "mapping", ".xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); FileOutputStream fos = new FileOutputStream(file.toFile())) {
+            Sheet sheet = workbook.createSheet("Mapping");
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("Old Path");
+            header.createCell(1).setCellValue("New Path");
+            int rowIndex = 1;
+            for (Map.Entry<String, String> entry : mapping.entrySet()) {
+                Row row = sheet.createRow(rowIndex++);
+                row.createCell(0).setCellValue(entry.getKey());
+                row.createCell(1).setCellValue(entry.getValue());
+            }
+            workbook.write(fos);
+        }
+        return file;
+    }
+
+    ObjectMapper objectMapper() {
+        return objectMapper;
+    }
+}
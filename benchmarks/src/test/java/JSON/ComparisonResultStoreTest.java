@@ -0,0 +1,89 @@
+package JSON;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Rows added to ComparisonResultStore read back unchanged, in order, through both forEach
+ * and forEachNewValue, and close() leaves no files behind.
+ */
+public class ComparisonResultStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    @Test
+    public void rowsReadBackAsAdded() throws IOException {
+        CompiledPath claimId = CompiledPath.compile("claims[*]/id");
+        CompiledPath lineCode = CompiledPath.compile("data[*]/lines[*]/code");
+        CompiledPath total = CompiledPath.compile("summary/total");
+        String longValue = repeat('v', 5000); // Beyond the shared short values
+        String unicode = "café € 😀";
+
+        File directory = folder.newFolder("store");
+        List<String> rows = new ArrayList<>();
+        List<String> newValues = new ArrayList<>();
+        try (ComparisonResultStore store = new ComparisonResultStore(directory)) {
+            store.add(claimId, new int[] {0}, lineCode, new int[] {0, 2}, "A1", "A1", true);
+            store.add(claimId, new int[] {1}, null, null, "B2", null, false);
+            store.add(null, null, lineCode, new int[] {3, -1}, null, "x", false);
+            store.add(total, null, total, null, longValue, unicode, false);
+            for (int i = 0; i < 10000; i++) {
+                store.add(claimId, new int[] {i}, lineCode, new int[] {i, i % 7}, "v" + (i % 10), "v" + (i % 10), true);
+            }
+            assertEquals(10004, store.size());
+            assertEquals(3, store.pathCount());
+
+            store.forEach((oldPath, newPath, oldValue, newValue, matched) ->
+                    rows.add(oldPath + " | " + newPath + " | " + oldValue + " | " + newValue + " | " + matched));
+            store.forEachNewValue((newPath, newIndexes, newValue, matched) ->
+                    newValues.add(newPath.concretePath(newIndexes) + " = " + newValue + " " + matched));
+        }
+
+        assertEquals(10004, rows.size());
+        assertEquals("claims[0]/id | data[0]/lines[2]/code | A1 | A1 | true", rows.get(0));
+        assertEquals("claims[1]/id | null | B2 | null | false", rows.get(1));
+        assertEquals("null | data[3]/lines[*]/code | null | x | false", rows.get(2));
+        assertEquals("summary/total | summary/total | " + longValue + " | " + unicode + " | false", rows.get(3));
+        assertEquals("claims[9999]/id | data[9999]/lines[3]/code | v9 | v9 | true", rows.get(10003));
+
+        // The row without a new path is skipped
+        assertEquals(10003, newValues.size());
+        assertEquals("data[0]/lines[2]/code = A1 true", newValues.get(0));
+        assertEquals("data[3]/lines[*]/code = x false", newValues.get(1));
+        assertEquals("summary/total = " + unicode + " false", newValues.get(2));
+        assertEquals("data[9999]/lines[3]/code = v9 true", newValues.get(10002));
+
+        assertArrayEquals(new String[0], directory.list());
+    }
+
+    @Test
+    public void rowsCanBeAddedAfterReading() throws IOException {
+        try (ComparisonResultStore store = new ComparisonResultStore(folder.newFolder("store"))) {
+            CompiledPath path = CompiledPath.compile("a");
+            store.add(path, null, path, null, "1", "1", true);
+            List<String> values = new ArrayList<>();
+            store.forEach((oldPath, newPath, oldValue, newValue, matched) -> values.add(newValue));
+            store.add(path, null, path, null, "1", "2", false);
+            values.clear();
+            store.forEach((oldPath, newPath, oldValue, newValue, matched) -> values.add(newValue));
+            assertEquals(Arrays.asList("1", "2"), values);
+        }
+    }
+}
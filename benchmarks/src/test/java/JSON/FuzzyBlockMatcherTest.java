@@ -0,0 +1,61 @@
+package JSON;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * FuzzyBlockMatcher scores a pair over the fields both records have, needs a minimum
+ * number of such fields, and still pairs values that differ only in formatting.
+ */
+public class FuzzyBlockMatcherTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // One line per matched legacy record: legacy id -> payer id (score)
+    private static List<String> matches(String legacyJson, String payerJson) throws IOException {
+        Map<String, String> mapping = new LinkedHashMap<>();
+        mapping.put("claimNumber", "payerClaimId");
+        mapping.put("patient/name", "member/fullName");
+        mapping.put("serviceDate", "dates/service");
+        FuzzyBlockMatcher matcher = new FuzzyBlockMatcher(CompiledMapping.compile(mapping), 0.8, 1000, 2);
+        List<String> matches = new ArrayList<>();
+        matcher.match(MAPPER.readTree(legacyJson), MAPPER.readTree(payerJson), (legacy, payer, score) ->
+                matches.add(legacy.get("id").asText() + " -> " + payer.get("id").asText() + String.format(" (%.2f)", score)));
+        return matches;
+    }
+
+    @Test
+    public void matchesValuesThatDifferOnlyInFormatting() throws IOException {
+        String legacy = "[{\"id\":\"L1\",\"claimNumber\":\"CLM-0042-7781\",\"patient\":{\"name\":\"Jane Doe\"},\"serviceDate\":\"2024-01-15\"}]";
+        String payer = "[{\"id\":\"P1\",\"payerClaimId\":\"clm00427781\",\"member\":{\"fullName\":\"JANE DOE\"},\"dates\":{\"service\":\"2024/01/15\"}}]";
+        assertEquals(Arrays.asList("L1 -> P1 (1.00)"), matches(legacy, payer));
+    }
+
+    @Test
+    public void missingFieldsDoNotLowerTheScore() throws IOException {
+        // The payer record has no service date; over all three fields this pair scored 0.67
+        String legacy = "[{\"id\":\"L1\",\"claimNumber\":\"CLM-0042-7781\",\"patient\":{\"name\":\"Jane Doe\"},\"serviceDate\":\"2024-01-15\"}]";
+        String payer = "[{\"id\":\"P1\",\"payerClaimId\":\"clm00427781\",\"member\":{\"fullName\":\"jane doe\"}},"
+                + "{\"id\":\"P2\",\"payerClaimId\":\"CLM-9999-0000\",\"member\":{\"fullName\":\"John Roe\"},\"dates\":{\"service\":\"2024-01-15\"}}]";
+        assertEquals(Arrays.asList("L1 -> P1 (1.00)"), matches(legacy, payer));
+    }
+
+    @Test
+    public void tooFewSharedFieldsAreNotScored() throws IOException {
+        // Only the claim number is present on both sides, one field short of the minimum
+        String legacy = "[{\"id\":\"L1\",\"claimNumber\":\"CLM-0042-7781\",\"serviceDate\":\"2024-01-15\"}]";
+        String payer = "[{\"id\":\"P1\",\"payerClaimId\":\"CLM00427781\",\"member\":{\"fullName\":\"Jane Doe\"}}]";
+        assertEquals(Arrays.asList(), matches(legacy, payer));
+    }
+}
@@ -0,0 +1,104 @@
+package JSON;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * ExternalSortMergeJoin pairs exactly the records HashJoinMatcher's ALL_FIELDS rule pairs,
+ * including duplicate keys, missing fields and values that only match by type rules.
+ */
+public class JoinEquivalenceTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String LEGACY_POINTER = "/searchResult/searchOutput/claims";
+    private static final String PAYER_POINTER = "/data";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sortMergeJoinFindsTheHashJoinPairs() throws IOException {
+        Map<String, String> mapping = new LinkedHashMap<>();
+        mapping.put("claimNumber", "payerClaimId");
+        mapping.put("amount/total", "charges/billed");
+        CompiledMapping compiled = CompiledMapping.compile(mapping);
+
+        Random random = new Random(42);
+        ArrayNode legacyClaims = MAPPER.createArrayNode();
+        ArrayNode payerRecords = MAPPER.createArrayNode();
+        for (int i = 0; i < 300; i++) {
+            ObjectNode claim = legacyClaims.addObject().put("seq", i);
+            putId(claim, "claimNumber", random);
+            if (random.nextInt(10) > 0) putAmount(claim.putObject("amount"), "total", random);
+
+            ObjectNode record = payerRecords.addObject().put("seq", i);
+            putId(record, "payerClaimId", random);
+            putAmount(record.putObject("charges"), "billed", random);
+        }
+        File legacyFile = folder.newFile("legacy.json");
+        File payerFile = folder.newFile("payer.json");
+        ObjectNode legacyRoot = MAPPER.createObjectNode();
+        legacyRoot.putObject("searchResult").putObject("searchOutput").set("claims", legacyClaims);
+        MAPPER.writeValue(legacyFile, legacyRoot);
+        MAPPER.writeValue(payerFile, MAPPER.createObjectNode().set("data", payerRecords));
+
+        List<String> hashPairs = new ArrayList<>();
+        new HashJoinMatcher(compiled, HashJoinMatcher.Rule.ALL_FIELDS).match(legacyClaims, payerRecords,
+                (legacy, payer) -> hashPairs.add(pair(legacy, payer)));
+
+        List<String> mergePairs = new ArrayList<>();
+        // A small run size makes the key files multi-run, so merging runs is covered too
+        ExternalSortMergeJoin join = new ExternalSortMergeJoin(compiled, folder.newFolder("join"), 16);
+        try (ExternalSortMergeJoin.SortedKeys legacyKeys = join.sortKeys(MAPPER, legacyFile, LEGACY_POINTER, true);
+             ExternalSortMergeJoin.SortedKeys payerKeys = join.sortKeys(MAPPER, payerFile, PAYER_POINTER, false)) {
+            long pairs = join.match(MAPPER, legacyKeys, payerKeys, (legacy, payer) -> mergePairs.add(pair(legacy, payer)));
+            assertEquals(mergePairs.size(), pairs);
+        }
+
+        assertFalse(hashPairs.isEmpty());
+        Collections.sort(hashPairs);
+        Collections.sort(mergePairs);
+        assertEquals(hashPairs, mergePairs);
+    }
+
+    // Few distinct IDs, so keys repeat on both sides; some as numbers, some as numeric text
+    private static void putId(ObjectNode node, String field, Random random) {
+        int id = random.nextInt(40);
+        if (random.nextBoolean()) {
+            node.put(field, String.valueOf(id));
+        } else {
+            node.put(field, id);
+        }
+    }
+
+    private static void putAmount(ObjectNode node, String field, Random random) {
+        int cents = random.nextInt(3) * 50;
+        if (random.nextBoolean()) {
+            node.put(field, cents / 100.0);
+        } else {
+            node.put(field, String.valueOf(cents / 100));
+        }
+    }
+
+    private static String pair(JsonNode legacy, JsonNode payer) {
+        return legacy.get("seq").asInt() + "-" + payer.get("seq").asInt();
+    }
+}
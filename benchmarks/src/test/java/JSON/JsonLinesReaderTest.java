@@ -0,0 +1,91 @@
+package JSON;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * JsonLinesReader.split cuts a file only after newlines, and reading all chunks returns
+ * every line once, in order, whatever the chunk size.
+ */
+public class JsonLinesReaderTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final long[] CHUNK_SIZES = {1, 2, 7, 30, 64, 1 << 20};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File write(String content) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String lines(int count, boolean trailingNewline) {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) content.append('\n');
+            // Lines of different lengths, some with multi-byte characters
+            content.append("{\"id\":").append(i).append(",\"name\":\"").append(i % 3 == 0 ? "café" : "x");
+            for (int j = 0; j < i % 5; j++) content.append("yyyyyyy");
+            content.append("\"}");
+        }
+        if (trailingNewline) content.append('\n');
+        return content.toString();
+    }
+
+    @Test
+    public void chunksStartAtLineStartsAndCoverTheFile() throws IOException {
+        for (boolean trailingNewline : new boolean[] {true, false}) {
+            File file = write(lines(25, trailingNewline));
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            for (long chunkBytes : CHUNK_SIZES) {
+                List<JsonLinesReader.Chunk> chunks = JsonLinesReader.split(file, chunkBytes);
+                long expectedStart = 0;
+                for (JsonLinesReader.Chunk chunk : chunks) {
+                    assertEquals(expectedStart, chunk.getStart());
+                    assertTrue(chunk.getEnd() > chunk.getStart());
+                    assertTrue(chunk.getStart() == 0 || bytes[(int) chunk.getStart() - 1] == '\n');
+                    expectedStart = chunk.getEnd();
+                }
+                assertEquals(bytes.length, expectedStart);
+            }
+        }
+    }
+
+    @Test
+    public void readsEveryLineOnceInOrder() throws IOException {
+        for (boolean trailingNewline : new boolean[] {true, false}) {
+            File file = write(lines(25, trailingNewline));
+            for (long chunkBytes : CHUNK_SIZES) {
+                List<Integer> ids = new ArrayList<>();
+                long count = 0;
+                for (JsonLinesReader.Chunk chunk : JsonLinesReader.split(file, chunkBytes)) {
+                    count += JsonLinesReader.forEachLine(MAPPER, chunk, record -> ids.add(record.get("id").asInt()));
+                }
+                assertEquals(25, count);
+                for (int i = 0; i < 25; i++) {
+                    assertEquals("chunk size " + chunkBytes, Integer.valueOf(i), ids.get(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void emptyFileHasNoChunks() throws IOException {
+        assertTrue(JsonLinesReader.split(write(""), 16).isEmpty());
+    }
+}
@@ -0,0 +1,79 @@
+package JSON;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * JsonMerkleTree.diff reports changed leaves, and added or removed subtrees once, under
+ * JSON pointers; equal documents have no differences.
+ */
+public class JsonMerkleTreeTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private JsonMerkleTree tree(String json) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), json.getBytes(StandardCharsets.UTF_8));
+        return JsonMerkleTree.read(MAPPER, file);
+    }
+
+    private List<String> diff(String oldJson, String newJson) throws IOException {
+        List<String> differences = new ArrayList<>();
+        int count = JsonMerkleTree.diff(tree(oldJson), tree(newJson), (pointer, oldValue, newValue) ->
+                differences.add(pointer + " " + text(oldValue) + " -> " + text(newValue)));
+        assertEquals(differences.size(), count);
+        return differences;
+    }
+
+    private static String text(JsonNode value) {
+        return value == null ? "(none)" : value.toString();
+    }
+
+    @Test
+    public void equalDocumentsHaveNoDifferences() throws IOException {
+        String json = "{\"a\":{\"b\":[1,2,{\"c\":null}]},\"d\":\"x\"}";
+        assertEquals(0, diff(json, json).size());
+        // Field order does not matter, element order does
+        assertEquals(0, diff("{\"a\":1,\"b\":2}", "{\"b\":2,\"a\":1}").size());
+        assertEquals(2, diff("[1,2]", "[2,1]").size());
+    }
+
+    @Test
+    public void reportsChangedAddedAndRemovedValues() throws IOException {
+        String oldJson = "{\"id\":1,\"claim\":{\"amount\":10,\"lines\":[{\"code\":\"a\"},{\"code\":\"b\"}]},\"gone\":{\"x\":1}}";
+        String newJson = "{\"id\":1,\"claim\":{\"amount\":\"10\",\"lines\":[{\"code\":\"a\"}]},\"added\":[true]}";
+        assertEquals(Arrays.asList(
+                "/claim/amount 10 -> \"10\"",
+                "/claim/lines/1 {\"code\":\"b\"} -> (none)",
+                "/gone {\"x\":1} -> (none)",
+                "/added (none) -> [true]"),
+                diff(oldJson, newJson));
+    }
+
+    @Test
+    public void escapesFieldNamesInPointers() throws IOException {
+        assertEquals(Arrays.asList("/a~1b/c~0d 1 -> 2"), diff("{\"a/b\":{\"c~d\":1}}", "{\"a/b\":{\"c~d\":2}}"));
+    }
+
+    @Test
+    public void reportsTypeChangeAtTheChangedNode() throws IOException {
+        assertEquals(Arrays.asList("/a {\"b\":1} -> [1]"), diff("{\"a\":{\"b\":1}}", "{\"a\":[1]}"));
+    }
+}
@@ -0,0 +1,121 @@
+package JSON;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+
+/**
+ * Type rules of ValueComparator with the default settings (no tolerance, not canonical),
+ * and hashKey() agreeing with matches() so the hash joins pair what the comparison matches.
+ */
+public class ValueComparatorTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // Scalars of every kind, including text spelling numbers and booleans
+    private static final String[] SCALARS = {
+            "10", "10.0", "1e1", "1E+1", "11", "-0", "0", "0.0", "12345678901234567890", "\"12345678901234567890.0\"",
+            "\"10\"", "\"10.0\"", "\"010\"", "\"0x10\"", "\"NaN\"", "\"1e1\"", "\"-0\"",
+            "true", "false", "\"true\"", "\"TRUE\"", "\"false\"",
+            "\"abc\"", "\"ABC\"", "\" abc\"", "\"\"", "null"
+    };
+
+    private static JsonNode json(String text) {
+        try {
+            return MAPPER.readTree(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean matches(String oldJson, String newJson) {
+        return ValueComparator.matches(json(oldJson), json(newJson));
+    }
+
+    @Test
+    public void numbersCompareByValue() {
+        assertTrue(matches("10", "10.0"));
+        assertTrue(matches("10", "1e1"));
+        assertTrue(matches("0", "-0.0"));
+        assertTrue(matches("12345678901234567890", "\"12345678901234567890.0\""));
+        assertFalse(matches("10", "11"));
+        assertFalse(matches("0.1", "0.10000001"));
+    }
+
+    @Test
+    public void numericTextMatchesTheNumberItSpells() {
+        assertTrue(matches("\"10\"", "10"));
+        assertTrue(matches("10.0", "\"10\""));
+        assertTrue(matches("\"-2.50\"", "-2.5"));
+        assertTrue(matches("\"1.0\"", "\"1\""));
+        assertFalse(matches("\"010\"", "10"));
+        assertFalse(matches("\"0x10\"", "16"));
+        assertFalse(matches("\"NaN\"", "\"nan\""));
+        assertFalse(matches("\"10 \"", "10"));
+    }
+
+    @Test
+    public void booleanTextMatchesTheBooleanItSpells() {
+        assertTrue(matches("\"true\"", "true"));
+        assertTrue(matches("false", "\"false\""));
+        assertFalse(matches("\"TRUE\"", "true"));
+        assertFalse(matches("true", "1"));
+        assertFalse(matches("true", "false"));
+    }
+
+    @Test
+    public void textIsExact() {
+        assertTrue(matches("\"abc\"", "\"abc\""));
+        assertFalse(matches("\"abc\"", "\"ABC\""));
+        assertFalse(matches("\" abc\"", "\"abc\""));
+    }
+
+    @Test
+    public void absentValuesNeverMatch() {
+        assertFalse(matches("null", "null"));
+        assertFalse(ValueComparator.matches(MissingNode.getInstance(), MissingNode.getInstance()));
+        assertFalse(ValueComparator.matches(null, json("1")));
+        assertNull(ValueComparator.hashKey(json("null")));
+        assertNull(ValueComparator.hashKey(MissingNode.getInstance()));
+    }
+
+    @Test
+    public void containersCompareStructurally() {
+        assertTrue(matches("{\"a\":[1,2]}", "{\"a\":[1,2]}"));
+        assertFalse(matches("[1,2]", "[2,1]"));
+        assertFalse(matches("[1]", "1"));
+        assertNull(ValueComparator.hashKey(json("[1]")));
+    }
+
+    @Test
+    public void hashKeyIsEqualExactlyWhenValuesMatch() {
+        for (String a : SCALARS) {
+            for (String b : SCALARS) {
+                String keyA = ValueComparator.hashKey(json(a));
+                String keyB = ValueComparator.hashKey(json(b));
+                boolean sameKey = keyA != null && keyA.equals(keyB);
+                assertEquals(a + " vs " + b, matches(a, b), sameKey);
+            }
+        }
+    }
+
+    @Test
+    public void jsonNumberSyntaxIsStrict() {
+        for (String number : new String[] {"0", "-0", "10", "-2.50", "1e3", "1E-3", "1.5e+10"}) {
+            assertTrue(number, ValueComparator.isJsonNumber(number));
+        }
+        for (String text : new String[] {"", "-", "01", "+1", "1.", ".5", "1e", "NaN", "Infinity", "0x10", "1d", " 1"}) {
+            assertFalse(text, ValueComparator.isJsonNumber(text));
+        }
+    }
+}
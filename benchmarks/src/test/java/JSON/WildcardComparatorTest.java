@@ -0,0 +1,98 @@
+package JSON;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Element alignment of WildcardComparator: by key field where one is configured, by
+ * position otherwise, and a leaf kept when the other side's array is empty.
+ */
+public class WildcardComparatorTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // One line per pair: old path = old value | new path = new value
+    private static List<String> pairs(String keyFields, String oldPath, String newPath, String oldJson, String newJson) throws IOException {
+        CompiledMapping.Entry entry = CompiledMapping.compile(Collections.singletonMap(oldPath, newPath)).entries().get(0);
+        WildcardComparator comparator = new WildcardComparator(WildcardComparator.parseKeyFields(keyFields));
+        List<String> pairs = new ArrayList<>();
+        comparator.compare(MAPPER.readTree(oldJson), MAPPER.readTree(newJson), entry, (oldIndexes, newIndexes, oldValue, newValue) ->
+                pairs.add(side(entry.getOldPath(), oldIndexes, oldValue) + " | " + side(entry.getNewPath(), newIndexes, newValue)));
+        return pairs;
+    }
+
+    private static String side(CompiledPath path, int[] indexes, JsonNode value) {
+        return (indexes != null ? path.concretePath(indexes) : "-") + " = " + ValueComparator.text(value);
+    }
+
+    @Test
+    public void alignsElementsByKey() throws IOException {
+        String oldJson = "{\"claims\":[{\"id\":\"A\",\"v\":1},{\"id\":\"B\",\"v\":2},{\"id\":\"D\",\"v\":4}]}";
+        String newJson = "{\"claims\":[{\"id\":\"B\",\"v\":2},{\"id\":\"C\",\"v\":3},{\"id\":\"A\",\"v\":9}]}";
+        assertEquals(Arrays.asList(
+                "claims[0]/v = 1 | claims[2]/v = 9",
+                "claims[1]/v = 2 | claims[0]/v = 2",
+                "claims[2]/v = 4 | - = null",
+                "- = null | claims[1]/v = 3"),
+                pairs("claims=id", "claims[*]/v", "claims[*]/v", oldJson, newJson));
+    }
+
+    @Test
+    public void pairsDuplicateKeysInOrder() throws IOException {
+        String oldJson = "{\"a\":[{\"id\":1,\"v\":\"p\"},{\"id\":1,\"v\":\"q\"},{\"id\":1,\"v\":\"r\"}]}";
+        String newJson = "{\"a\":[{\"id\":2,\"v\":\"z\"},{\"id\":1,\"v\":\"x\"},{\"id\":1,\"v\":\"y\"}]}";
+        assertEquals(Arrays.asList(
+                "a[0]/v = p | a[1]/v = x",
+                "a[1]/v = q | a[2]/v = y",
+                "a[2]/v = r | - = null",
+                "- = null | a[0]/v = z"),
+                pairs("a=id", "a[*]/v", "a[*]/v", oldJson, newJson));
+    }
+
+    @Test
+    public void alignsNestedArraysByTheirOwnKeys() throws IOException {
+        String oldJson = "{\"claims\":[{\"id\":1,\"lines\":[{\"code\":\"x\",\"amt\":5},{\"code\":\"y\",\"amt\":6}]}]}";
+        String newJson = "{\"data\":[{\"claimId\":1,\"items\":[{\"code\":\"y\",\"amt\":6},{\"code\":\"x\",\"amt\":7}]}]}";
+        assertEquals(Arrays.asList(
+                "claims[0]/lines[0]/amt = 5 | data[0]/items[1]/amt = 7",
+                "claims[0]/lines[1]/amt = 6 | data[0]/items[0]/amt = 6"),
+                pairs("claims=id,data=claimId,lines=code,items=code", "claims[*]/lines[*]/amt", "data[*]/items[*]/amt", oldJson, newJson));
+    }
+
+    @Test
+    public void alignsByPositionWithoutKey() throws IOException {
+        assertEquals(Arrays.asList(
+                "a[0] = 1 | a[0] = 1",
+                "a[1] = 2 | a[1] = 3",
+                "- = null | a[2] = 4"),
+                pairs("", "a[*]", "a[*]", "{\"a\":[1,2]}", "{\"a\":[1,3,4]}"));
+    }
+
+    @Test
+    public void keyMatchesByTypedValue() throws IOException {
+        // "7" and 7.0 are the same key, as they are the same value
+        assertEquals(Collections.singletonList("a[0]/v = x | a[0]/v = x"),
+                pairs("a=id", "a[*]/v", "a[*]/v", "{\"a\":[{\"id\":\"7\",\"v\":\"x\"}]}", "{\"a\":[{\"id\":7.0,\"v\":\"x\"}]}"));
+    }
+
+    @Test
+    public void keepsLeafWhenOtherArrayIsEmptyOrMissing() throws IOException {
+        assertEquals(Collections.singletonList("total = 5 | items[*]/amt = null"),
+                pairs("", "total", "items[*]/amt", "{\"total\":5}", "{\"items\":[]}"));
+        assertEquals(Collections.singletonList("total = 5 | items[*]/amt = null"),
+                pairs("", "total", "items[*]/amt", "{\"total\":5}", "{}"));
+        // The new side has no element at all when its parent element is unpaired
+        assertEquals(Collections.singletonList("a[0]/total = 5 | - = null"),
+                pairs("", "a[*]/total", "b[*]/items[*]/amt", "{\"a\":[{\"total\":5}]}", "{\"b\":[]}"));
+    }
+}